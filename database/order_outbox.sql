@@ -0,0 +1,20 @@
+-- Order outbox for the OrderPipeline (run once against the EasyShop database before deploying).
+-- Checkout writes one row per order in the same transaction as the order; the pipeline drains it.
+IF OBJECT_ID('order_outbox', 'U') IS NULL
+BEGIN
+    CREATE TABLE order_outbox (
+       outbox_id INT IDENTITY(1,1) NOT NULL,
+       order_id INT NOT NULL,
+       user_id INT NOT NULL,
+       stage_index INT NOT NULL DEFAULT 0,
+       status NVARCHAR(20) NOT NULL DEFAULT 'PENDING',
+       attempts INT NOT NULL DEFAULT 0,
+       next_attempt_at DATETIME2 NOT NULL,
+       last_error NVARCHAR(2000),
+       locked_until DATETIME2 NULL,
+       created_at DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME(),
+       PRIMARY KEY (outbox_id)
+    );
+    CREATE INDEX ix_order_outbox_due ON order_outbox (status, next_attempt_at);
+END
+GO
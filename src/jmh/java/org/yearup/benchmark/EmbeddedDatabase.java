@@ -0,0 +1,50 @@
+package org.yearup.benchmark;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Creates an in-memory H2 database in SQL Server mode with the EasyShop schema and a generated catalog
+public final class EmbeddedDatabase {
+    private static final String[] COLORS = {"Black", "Gray", "White", "Charcoal", "Mint", "Red", "Blue", "Green"};
+
+    private EmbeddedDatabase() {
+    }
+
+    public static DataSource create(String name, int productCount) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MSSQLServer;DB_CLOSE_DELAY=-1");
+
+        new ResourceDatabasePopulator(new ClassPathResource("benchmark-schema.sql")).execute(dataSource);
+        insertProducts(dataSource, productCount);
+
+        return dataSource;
+    }
+
+    private static void insertProducts(DataSource dataSource, int productCount) throws SQLException {
+        String sql = "INSERT INTO products (name, price, category_id, description, color, image_url, stock, featured) " +
+                " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 1; i <= productCount; i++) {
+                statement.setString(1, "Product " + i);
+                statement.setBigDecimal(2, BigDecimal.valueOf(100 + (i * 37L) % 90_000, 2));
+                statement.setInt(3, 1 + i % 3);
+                statement.setString(4, "Description of product " + i + ", good value for money.");
+                statement.setString(5, COLORS[i % COLORS.length]);
+                statement.setString(6, "product-" + i + ".jpg");
+                statement.setInt(7, 100);
+                statement.setBoolean(8, i % 10 == 0);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
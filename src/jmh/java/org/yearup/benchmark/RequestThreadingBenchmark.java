@@ -0,0 +1,149 @@
+package org.yearup.benchmark;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.yearup.data.mysql.JdbcConcurrencyLimiter;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Load test for the two request execution modes. A burst of concurrent "get cart" requests runs the
+ * real MySqlShoppingCartDao against a pooled embedded database. Every statement waits for a simulated
+ * network round trip, and every request can also block outside the database (an upstream call or a
+ * slow client).
+ *
+ * platform: Tomcat's default of 200 platform threads, the pool bounds the database
+ * virtual:  one virtual thread per request, JdbcConcurrencyLimiter bounds the database
+ *
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Djmh.args="RequestThreadingBenchmark -f 1 -wi 2 -i 5"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RequestThreadingBenchmark {
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int POOL_SIZE = 20;
+    private static final int USER_ID = 1;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"2000"})
+    public int concurrentRequests;
+
+    // simulated SQL Server round trip per statement
+    @Param({"2"})
+    public int roundTripMillis;
+
+    // blocking time per request that does not hold a connection
+    @Param({"0", "50"})
+    public int outsideDatabaseMillis;
+
+    private BasicDataSource pool;
+    private ExecutorService executor;
+    private MySqlShoppingCartDao cartDao;
+
+    @Setup
+    public void setup() throws SQLException {
+        String name = "request-threading-" + mode + "-" + outsideDatabaseMillis;
+        DataSource database = EmbeddedDatabase.create(name, 1_000);
+        try (Connection connection = database.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO shopping_cart (user_id, product_id, quantity) " +
+                    "SELECT " + USER_ID + ", product_id, 1 FROM products WHERE product_id <= 10");
+        }
+
+        pool = new BasicDataSource();
+        pool.setUrl("jdbc:h2:mem:" + name + ";MODE=MSSQLServer;DB_CLOSE_DELAY=-1");
+        pool.setMaxTotal(POOL_SIZE);
+        pool.setMaxIdle(POOL_SIZE);
+        pool.setMaxWaitMillis(30_000);
+
+        DataSource dataSource = new RoundTripDataSource(pool, roundTripMillis);
+        cartDao = new MySqlShoppingCartDao(dataSource, new MySqlProductDao(dataSource));
+
+        if (mode.equals("virtual")) {
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+            cartDao.setConcurrencyLimiter(new JdbcConcurrencyLimiter(POOL_SIZE, 30_000));
+        } else {
+            executor = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        executor.shutdownNow();
+        pool.close();
+    }
+
+    // time for the whole burst; divide concurrentRequests by it for requests per millisecond
+    @Benchmark
+    public int burstOfCartRequests() throws Exception {
+        List<Future<Integer>> responses = new ArrayList<>(concurrentRequests);
+        for (int i = 0; i < concurrentRequests; i++) {
+            responses.add(executor.submit(() -> {
+                if (outsideDatabaseMillis > 0) {
+                    Thread.sleep(outsideDatabaseMillis);
+                }
+                return cartDao.getByUserId(USER_ID).getItems().size();
+            }));
+        }
+
+        int items = 0;
+        for (Future<Integer> response : responses) {
+            items += response.get();
+        }
+        return items;
+    }
+
+    // adds a fixed delay to every statement execution, standing in for the network hop to SQL Server
+    private static final class RoundTripDataSource extends DelegatingDataSource {
+        private final long roundTripMillis;
+
+        private RoundTripDataSource(DataSource target, long roundTripMillis) {
+            super(target);
+            this.roundTripMillis = roundTripMillis;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        return result instanceof PreparedStatement statement ? delayed(statement) : result;
+                    });
+        }
+
+        private PreparedStatement delayed(PreparedStatement statement) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("execute")) {
+                            Thread.sleep(roundTripMillis);
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.yearup.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.yearup.benchmark.EmbeddedDatabase;
+import org.yearup.data.mysql.MySqlProductDao;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Imports a 100k row CSV catalog into a fresh embedded database, end to end from bytes to committed rows
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProductImportBenchmark {
+    private static final int ROWS = 100_000;
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    private byte[] csv;
+    private ProductBulkTransfer transfer;
+    private int iteration;
+
+    @Setup(Level.Trial)
+    public void createCsv() {
+        StringBuilder content = new StringBuilder("name,price,categoryId,description,color,stock,featured,imageUrl\n");
+        for (int i = 1; i <= ROWS; i++) {
+            content.append("Product ").append(i).append(',')
+                    .append(10 + i % 500).append(".99,")
+                    .append(1 + i % 3).append(',')
+                    .append("Description of product ").append(i).append(',')
+                    .append("Black,100,false,product-").append(i).append(".jpg\n");
+        }
+        csv = content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Iteration)
+    public void createDatabase() throws SQLException {
+        MySqlProductDao dao = new MySqlProductDao(EmbeddedDatabase.create("product-import-" + batchSize + "-" + iteration++, 0));
+        transfer = new ProductBulkTransfer(dao, new ObjectMapper(), batchSize);
+    }
+
+    @Benchmark
+    public int importCsv() {
+        return transfer.importProducts(new ByteArrayInputStream(csv), ProductBulkTransfer.Format.CSV);
+    }
+}
@@ -0,0 +1,80 @@
+package org.yearup.data.mysql;
+
+import org.openjdk.jmh.annotations.*;
+import org.yearup.benchmark.EmbeddedDatabase;
+import org.yearup.models.Product;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// MySqlProductDao hot paths against an embedded H2 database in SQL Server mode holding 5000 products
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductDaoBenchmark {
+    private DataSource dataSource;
+    private MySqlProductDao dao;
+
+    // a positioned row so mapRow can be measured on its own
+    private Connection connection;
+    private ResultSet row;
+
+    @Setup
+    public void setup() throws SQLException {
+        dataSource = EmbeddedDatabase.create("product-dao-benchmark", 5_000);
+        dao = new MySqlProductDao(dataSource);
+
+        connection = dataSource.getConnection();
+        Statement statement = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        row = statement.executeQuery("SELECT * FROM products WHERE product_id = 1");
+        row.next();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        row.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public Product mapRow() throws SQLException {
+        return MySqlProductDao.mapRow(row);
+    }
+
+    // only looking up the SQL text for the filter combination, without touching the database
+    @Benchmark
+    public String buildSearchQuery() {
+        return MySqlProductDao.searchSql(1, new BigDecimal("10.00"), new BigDecimal("500.00"), "Red");
+    }
+
+    @Benchmark
+    public List<Product> searchAllFilters() {
+        return dao.search(1, new BigDecimal("10.00"), new BigDecimal("500.00"), "Red");
+    }
+
+    @Benchmark
+    public List<Product> searchPage() {
+        return dao.search(null, null, null, null, 2_500, 50);
+    }
+
+    @Benchmark
+    public Product getById() {
+        return dao.getById(2_500);
+    }
+
+    @Benchmark
+    public List<Product> getByIds40() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 40; i++) {
+            ids.add(i * 100);
+        }
+        return dao.getByIds(ids);
+    }
+}
@@ -0,0 +1,55 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Shared test data for the model and serialization benchmarks
+public final class CartFixtures {
+    private CartFixtures() {
+    }
+
+    public static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            products.add(new Product(i, "Product " + i, BigDecimal.valueOf(999 + i * 13L, 2), 1 + i % 3,
+                    "Description of product " + i, "Black", 50, i % 10 == 0, "product-" + i + ".jpg"));
+        }
+        return products;
+    }
+
+    public static ShoppingCart cart(int lines) {
+        ShoppingCart cart = new ShoppingCart();
+        for (Product product : products(lines)) {
+            cart.add(new ShoppingCartItem(product, 1 + product.getProductId() % 4));
+        }
+        return cart;
+    }
+
+    public static Order order(int lines) {
+        Order order = new Order();
+        order.setOrderId(1);
+        order.setUserId(1);
+        order.setDate(LocalDate.of(2024, 1, 15));
+        order.setAddress("123 Main St");
+        order.setCity("Sample City");
+        order.setState("CA");
+        order.setZip("12345");
+        order.setShippingAmount(new BigDecimal("5.99"));
+
+        List<OrderLineItem> lineItems = new ArrayList<>();
+        for (Product product : products(lines)) {
+            OrderLineItem item = new OrderLineItem();
+            item.setOrderLineItemId(product.getProductId());
+            item.setOrderId(1);
+            item.setProductId(product.getProductId());
+            item.setSalesPrice(product.getPrice());
+            item.setQuantity(2);
+            item.setDiscount(BigDecimal.ZERO);
+            lineItems.add(item);
+        }
+        order.setLineItems(lineItems);
+        return order;
+    }
+}
@@ -0,0 +1,58 @@
+package org.yearup.models;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cart arithmetic that runs on every cart response; add -Djmh.args="-prof gc ShoppingCart" to see allocations
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShoppingCartBenchmark {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Param({"1", "10", "100"})
+    private int lines;
+
+    private List<Product> products;
+    private ShoppingCart cart;
+    private ShoppingCartItem item;
+
+    @Setup
+    public void setup() {
+        products = CartFixtures.products(lines);
+        cart = CartFixtures.cart(lines);
+        item = cart.getItems().values().iterator().next();
+    }
+
+    @Benchmark
+    public BigDecimal getTotal() {
+        return cart.getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal getLineTotal() {
+        return item.getLineTotal();
+    }
+
+    // what the cart DAO does on every request: fill a fresh cart, then ask for its total
+    @Benchmark
+    public BigDecimal buildAndTotal() {
+        ShoppingCart fresh = new ShoppingCart();
+        for (Product product : products) {
+            fresh.add(new ShoppingCartItem(product, 1 + product.getProductId() % 4));
+        }
+        return fresh.getTotal();
+    }
+
+    // Jackson reads every line total and the cart total
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cart);
+    }
+}
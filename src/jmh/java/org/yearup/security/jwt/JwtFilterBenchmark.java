@@ -0,0 +1,65 @@
+package org.yearup.security.jwt;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Measures the cost JWTFilter adds to every authenticated request.
+// filterCachedToken is the steady state (a client repeating its bearer token),
+// fullVerification is what every request used to pay: parsing and checking the HS512 signature.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtFilterBenchmark {
+    private TokenProvider tokenProvider;
+    private JWTFilter filter;
+    private MockHttpServletRequest request;
+    private String token;
+
+    @Setup
+    public void setup() {
+        // a fresh HS512 key per run; the benchmark must not depend on the deployed jwt.secret
+        byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        tokenProvider = new TokenProvider(Base64.getEncoder().encodeToString(secret), 3600, 10_000);
+        tokenProvider.afterPropertiesSet();
+        filter = new JWTFilter(tokenProvider);
+
+        Authentication login = new UsernamePasswordAuthenticationToken("user", null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        token = tokenProvider.createToken(login, false);
+
+        request = new MockHttpServletRequest("GET", "/cart");
+        request.addHeader(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + token);
+    }
+
+    @Benchmark
+    public Object filterCachedToken() throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    @Benchmark
+    public Object fullVerification() {
+        tokenProvider.validateToken(token);
+        return tokenProvider.getAuthentication(token);
+    }
+
+    @Benchmark
+    public String createToken() {
+        return tokenProvider.createToken(new UsernamePasswordAuthenticationToken("user", null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))), false);
+    }
+}
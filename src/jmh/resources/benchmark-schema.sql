@@ -0,0 +1,47 @@
+-- Schema for the embedded H2 database (MODE=MSSQLServer) the benchmarks run against.
+-- Mirrors src/test/resources/test-data.sql without the T-SQL batch separators.
+CREATE TABLE users (
+    user_id INT IDENTITY(1,1) NOT NULL,
+    username NVARCHAR(50) NOT NULL,
+    hashed_password NVARCHAR(255) NOT NULL,
+    role NVARCHAR(50) NOT NULL,
+    PRIMARY KEY (user_id)
+);
+
+CREATE TABLE categories (
+    category_id INT IDENTITY(1,1) NOT NULL,
+    name NVARCHAR(100) NOT NULL,
+    description NVARCHAR(2000),
+    PRIMARY KEY (category_id)
+);
+
+CREATE TABLE products (
+    product_id INT IDENTITY(1,1) NOT NULL,
+    name NVARCHAR(100) NOT NULL,
+    price DECIMAL(10, 2) NOT NULL,
+    category_id INT NOT NULL,
+    description NVARCHAR(2000),
+    color NVARCHAR(20),
+    image_url NVARCHAR(200),
+    stock INT NOT NULL DEFAULT 0,
+    featured BIT NOT NULL DEFAULT 0,
+    PRIMARY KEY (product_id),
+    FOREIGN KEY (category_id) REFERENCES categories(category_id)
+);
+
+CREATE TABLE shopping_cart (
+    user_id INT NOT NULL,
+    product_id INT NOT NULL,
+    quantity INT NOT NULL DEFAULT 1,
+    PRIMARY KEY (user_id, product_id),
+    FOREIGN KEY (user_id) REFERENCES users(user_id),
+    FOREIGN KEY (product_id) REFERENCES products(product_id)
+);
+
+INSERT INTO users (username, hashed_password, role)
+VALUES ('user', '$2a$10$NkufUPF3V8dEPSZeo1fzHe9ScBu.LOay9S3N32M84yuUM2OJYEJ/.', 'ROLE_USER');
+
+INSERT INTO categories (name, description)
+VALUES ('Electronics', 'Explore the latest gadgets and electronic devices.'),
+       ('Fashion', 'Discover trendy clothing and accessories for men and women.'),
+       ('Home & Kitchen', 'Find everything you need to decorate and equip your home.');
@@ -0,0 +1,169 @@
+package org.yearup.catalog;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductDao;
+import org.yearup.models.Product;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Bulk import and export of the product catalog as CSV or newline-delimited JSON.
+ * Both directions go through a temporary file, so neither holds the catalog in memory and
+ * neither keeps a connection or transaction open while a slow client uploads or downloads:
+ * an import is stored and validated before ProductDao.createAll reads it one row at a time,
+ * and an export is written to the file by the database query and only then sent.
+ */
+@Component
+public class ProductBulkTransfer {
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    // header of an export; imports map columns by their header name, so any order and subset works
+    private static final CsvSchema EXPORT_SCHEMA = CsvSchema.builder()
+            .addColumn("productId")
+            .addColumn("name")
+            .addColumn("price")
+            .addColumn("categoryId")
+            .addColumn("description")
+            .addColumn("color")
+            .addColumn("stock")
+            .addColumn("featured")
+            .addColumn("imageUrl")
+            .setUseHeader(true)
+            .build();
+
+    private final ProductDao productDao;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final int batchSize;
+
+    public ProductBulkTransfer(ProductDao productDao, ObjectMapper objectMapper,
+                               @Value("${easyshop.products.import.batch-size:1000}") int batchSize) {
+        this.productDao = productDao;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    // all or nothing: every row is validated before the first insert, and nothing is inserted if one is invalid
+    public int importProducts(InputStream input, Format format) {
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("product-import", ".tmp");
+            Files.copy(input, spool, StandardCopyOption.REPLACE_EXISTING);
+
+            try (MappingIterator<Product> rows = readRows(spool, format)) {
+                validating(rows).forEachRemaining(product -> { });
+            }
+            try (MappingIterator<Product> rows = readRows(spool, format)) {
+                return productDao.createAll(validating(rows), batchSize);
+            }
+        } catch (IOException e) {
+            throw new ProductImportException(0, "Unreadable upload.", e);
+        } finally {
+            deleteQuietly(spool);
+        }
+    }
+
+    public void exportProducts(OutputStream output, Format format) throws IOException {
+        Path spool = Files.createTempFile("product-export", ".tmp");
+        try {
+            OutputStream file = Files.newOutputStream(spool);
+            SequenceWriter writer = format == Format.CSV
+                    ? csvMapper.writer(EXPORT_SCHEMA).writeValues(file)
+                    : objectMapper.writer().withRootValueSeparator("\n").writeValues(file);
+
+            try (file; writer) {
+                productDao.streamSearch(null, null, null, null, product -> {
+                    try {
+                        writer.write(product);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            Files.copy(spool, output);
+        } finally {
+            deleteQuietly(spool);
+        }
+    }
+
+    private MappingIterator<Product> readRows(Path spool, Format format) throws IOException {
+        return format == Format.CSV
+                ? csvMapper.readerFor(Product.class).with(CsvSchema.emptySchema().withHeader()).readValues(spool.toFile())
+                : objectMapper.readerFor(Product.class).readValues(spool.toFile());
+    }
+
+    private static void deleteQuietly(Path spool) {
+        if (spool == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException ignored) {
+            // the temp directory is cleaned up by the OS eventually
+        }
+    }
+
+    private static Iterator<Product> validating(MappingIterator<Product> rows) {
+        return new Iterator<>() {
+            private long row;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    return rows.hasNextValue();
+                } catch (IOException e) {
+                    throw new ProductImportException(row + 1, e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public Product next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                row++;
+                Product product;
+                try {
+                    product = rows.nextValue();
+                } catch (IOException e) {
+                    throw new ProductImportException(row, e.getMessage(), e);
+                }
+                validate(row, product);
+                return product;
+            }
+        };
+    }
+
+    private static void validate(long row, Product product) {
+        if (product.getName() == null || product.getName().isBlank()) {
+            throw new ProductImportException(row, "name is required.", null);
+        }
+        if (product.getPrice() == null || product.getPrice().compareTo(BigDecimal.ZERO) < 0) {
+            throw new ProductImportException(row, "price must be zero or more.", null);
+        }
+        if (product.getCategoryId() <= 0) {
+            throw new ProductImportException(row, "categoryId is required.", null);
+        }
+        if (product.getStock() < 0) {
+            throw new ProductImportException(row, "stock must be zero or more.", null);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.yearup.catalog;
+
+// A row of a bulk import that could not be parsed or is not a valid product; nothing of the import is kept
+public class ProductImportException extends RuntimeException {
+    private final long row;
+
+    public ProductImportException(long row, String message, Throwable cause) {
+        super("Row " + row + ": " + message, cause);
+        this.row = row;
+    }
+
+    public long getRow() {
+        return row;
+    }
+}
@@ -0,0 +1,35 @@
+package org.yearup.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every request on its own virtual thread instead of Tomcat's fixed pool of platform threads.
+ * A request that blocks on SQL Server then only parks a virtual thread, so the number of requests
+ * in flight is no longer capped by max-threads. Database concurrency is still bounded by
+ * JdbcConcurrencyLimiter, which is enabled by the same property.
+ *
+ * Enable with easyshop.virtual-threads.enabled=true
+ */
+@Configuration
+@ConditionalOnProperty(name = "easyshop.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    // also used by Spring MVC for async work such as StreamingResponseBody
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
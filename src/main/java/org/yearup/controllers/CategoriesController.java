@@ -1,12 +1,15 @@
 package org.yearup.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.yearup.data.CategoryDao;
 import org.yearup.data.ProductDao;
+import org.yearup.data.cache.CatalogVersion;
 import org.yearup.models.Category;
 import org.yearup.models.Product;
 
@@ -22,25 +25,38 @@ import java.util.List;
 public class CategoriesController {
     private CategoryDao categoryDao;
     private ProductDao productDao;
+    private CatalogVersion catalogVersion;
 
 
     // create an Autowired controller to inject the categoryDao and ProductDao
     @Autowired
-    public CategoriesController(CategoryDao categoryDao, ProductDao productDao) {
+    public CategoriesController(CategoryDao categoryDao, ProductDao productDao, CatalogVersion catalogVersion) {
         this.categoryDao = categoryDao;
         this.productDao = productDao;
+        this.catalogVersion = catalogVersion;
     }
 
     // add the appropriate annotation for a get action
     @GetMapping
-    public List<Category> getAll() {
+    public ResponseEntity<List<Category>> getAll(WebRequest request) {
+        // a client that still has the current catalog version gets a 304 without touching the database
+        String etag = catalogVersion.getETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
         // find and return all categories
-        return categoryDao.getAllCategories();
+        return revalidated(etag, categoryDao.getAllCategories());
     }
 
     // add the appropriate annotation for a get action
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getById(@PathVariable int id) {
+    public ResponseEntity<Category> getById(@PathVariable int id, WebRequest request) {
+        String etag = catalogVersion.getETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
         Category category = categoryDao.getById(id);
 
         // check if the category exists
@@ -49,15 +65,20 @@ public class CategoriesController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
         // return the category with a 200 OK status
-        return ResponseEntity.ok(category);
+        return revalidated(etag, category);
     }
 
     // the url to return all products in category 1 would look like this
     // https://localhost:8080/categories/1/products
     @GetMapping("{categoryId}/products")
-    public List<Product> getProductsById(@PathVariable int categoryId) {
+    public ResponseEntity<List<Product>> getProductsById(@PathVariable int categoryId, WebRequest request) {
+        String etag = catalogVersion.getETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
         // get a list of product by categoryId
-        return productDao.listByCategoryId(categoryId);
+        return revalidated(etag, productDao.listByCategoryId(categoryId));
     }
 
     // add annotation to call this method for a POST action
@@ -89,4 +110,12 @@ public class CategoriesController {
         // delete the category by id
         categoryDao.delete(id);
     }
+
+    // no-cache lets clients store the response but makes them check the ETag before every reuse
+    private static <T> ResponseEntity<T> revalidated(String etag, T body) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(body);
+    }
 }
@@ -6,10 +6,14 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.InsufficientStockException;
 import org.yearup.data.OrderDao;
-import org.yearup.data.OrderLineItemDao;
+import org.yearup.data.ProfileDao;
 import org.yearup.data.ShoppingCartDao;
 import org.yearup.models.OrderLineItem;
+import org.yearup.models.OrderPage;
+import org.yearup.models.OrderSummary;
+import org.yearup.models.Profile;
 import org.yearup.models.ShoppingCartItem;
 import org.yearup.models.User;
 
@@ -24,18 +28,19 @@ import java.util.List;
 @PreAuthorize("isAuthenticated()") // Require user to be logged in
 @CrossOrigin
 public class OrdersController {
+    private static final int MAX_PAGE_SIZE = 100;
 
     private final OrderDao orderDao;
     private final ShoppingCartDao shoppingCartDao;
-    private final OrderLineItemDao orderLineItemDao;
     private final UserDao userDao;
+    private final ProfileDao profileDao;
 
     // Constructor injection for the DAOs
-    public OrdersController(OrderDao orderDao, ShoppingCartDao shoppingCartDao, OrderLineItemDao orderLineItemDao, UserDao userDao) {
+    public OrdersController(OrderDao orderDao, ShoppingCartDao shoppingCartDao, UserDao userDao, ProfileDao profileDao) {
         this.orderDao = orderDao;
         this.shoppingCartDao = shoppingCartDao;
-        this.orderLineItemDao = orderLineItemDao;
         this.userDao = userDao;
+        this.profileDao = profileDao;
     }
 
     // Endpoint to handle checkout process
@@ -52,6 +57,9 @@ public class OrdersController {
             }
             int userId = user.getId();
 
+            // write any cart changes still held in memory, so the order sees the cart as the user left it
+            shoppingCartDao.flush(userId);
+
             // Retrieve the shopping cart for the user
             var cart = shoppingCartDao.getByUserId(userId);
 
@@ -59,43 +67,129 @@ public class OrdersController {
             if (cart == null || cart.getItems().isEmpty()) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Shopping cart is empty.");
             }
+
+            // the order ships to the address in the user's profile
+            Profile profile = profileDao.getByUserId(userId);
+            if (profile == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A profile with a shipping address is required.");
+            }
             // Create a new order
             Order order = new Order();
             order.setUserId(userId);
             order.setDate(LocalDate.now());
-            order.setAddress("123 Main St");
-            order.setCity("Sample City");
-            order.setState("CA");
-            order.setZip("12345");
+            order.setAddress(profile.getAddress());
+            order.setCity(profile.getCity());
+            order.setState(profile.getState());
+            order.setZip(profile.getZip());
             order.setShippingAmount(new BigDecimal("5.99"));
 
-            // Insert the order into the database and get the generated order ID
-            Order createdOrder = orderDao.create(order);
-            int orderId = createdOrder.getOrderId();
-
             List<OrderLineItem> orderLineItems = new ArrayList<>();
 
-            // Insert order line items for each item in the shopping cart
+            // Build an order line item for each item in the shopping cart
             for (ShoppingCartItem item : cart.getItems().values()) {
                 OrderLineItem lineItem = new OrderLineItem();
-                lineItem.setOrderId(orderId);
                 lineItem.setProductId(item.getProduct().getProductId());
                 lineItem.setSalesPrice(item.getProduct().getPrice());
                 lineItem.setQuantity(item.getQuantity());
                 lineItem.setDiscount(BigDecimal.ZERO);
 
-                orderLineItemDao.create(lineItem);
                 orderLineItems.add(lineItem);
             }
-            // Clear the shopping cart after the order is created
-            shoppingCartDao.clearCart(userId);
 
-            createdOrder.setLineItems(orderLineItems); // Set lineItems for return
-            return createdOrder;
+            // Insert the order and its line items, update stock, clear the cart and queue the
+            // follow-up work in one transaction; everything else happens in the OrderPipeline
+            Order created = orderDao.createFromCart(order, orderLineItems);
+
+            // the transaction emptied the cart in the database, drop any copy held in memory
+            shoppingCartDao.evict(userId);
+            return created;
 
+        } catch (InsufficientStockException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (ResponseStatusException e) {
+            throw e; // rethrow known exception
         } catch (Exception e) {
             e.printStackTrace();
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Checkout failed.");
         }
     }
+
+    // order history for list views: totals only, newest first, e.g. /orders?size=20&token=...
+    @GetMapping
+    public OrderPage<OrderSummary> listOrders(Principal principal,
+                                              @RequestParam(name = "size", defaultValue = "20") int size,
+                                              @RequestParam(name = "token", required = false) String token) {
+        checkPageSize(size);
+        Integer beforeOrderId = ContinuationTokens.decode(token);
+        int userId = currentUserId(principal);
+
+        try {
+            // ask for one extra order to find out whether another page follows
+            List<OrderSummary> orders = orderDao.listSummariesByUserId(userId, beforeOrderId, size + 1);
+
+            String nextToken = null;
+            if (orders.size() > size) {
+                orders = orders.subList(0, size);
+                nextToken = ContinuationTokens.encode(orders.get(size - 1).getOrderId());
+            }
+            return new OrderPage<>(orders, nextToken);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // the same history with every line item, paged the same way
+    @GetMapping("details")
+    public OrderPage<Order> listOrderDetails(Principal principal,
+                                             @RequestParam(name = "size", defaultValue = "20") int size,
+                                             @RequestParam(name = "token", required = false) String token) {
+        checkPageSize(size);
+        Integer beforeOrderId = ContinuationTokens.decode(token);
+        int userId = currentUserId(principal);
+
+        try {
+            List<Order> orders = orderDao.listByUserId(userId, beforeOrderId, size + 1);
+
+            String nextToken = null;
+            if (orders.size() > size) {
+                orders = orders.subList(0, size);
+                nextToken = ContinuationTokens.encode(orders.get(size - 1).getOrderId());
+            }
+            return new OrderPage<>(orders, nextToken);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    @GetMapping("{orderId}")
+    public Order getOrder(Principal principal, @PathVariable int orderId) {
+        int userId = currentUserId(principal);
+
+        Order order;
+        try {
+            order = orderDao.getById(orderId);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+
+        // someone else's order is reported as missing, so order ids can't be probed
+        if (order == null || order.getUserId() != userId) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return order;
+    }
+
+    private int currentUserId(Principal principal) {
+        User user = userDao.getByUserName(principal.getName());
+        if (user == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found.");
+        }
+        return user.getId();
+    }
+
+    private static void checkPageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+    }
 }
@@ -1,51 +1,175 @@
 package org.yearup.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.yearup.catalog.ProductBulkTransfer;
+import org.yearup.catalog.ProductImportException;
 import org.yearup.models.Product;
+import org.yearup.models.ProductImportResult;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearchResult;
 import org.yearup.data.ProductDao;
+import org.yearup.data.cache.CatalogVersion;
+import org.yearup.search.ProductSearchIndex;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("products")
 @CrossOrigin
 public class ProductsController {
+    private static final int MAX_PAGE_SIZE = 200;
+
     private ProductDao productDao;
+    private ObjectMapper objectMapper;
+    private ProductSearchIndex searchIndex;
+    private CatalogVersion catalogVersion;
+    private ProductBulkTransfer bulkTransfer;
 
     @Autowired
-    public ProductsController(ProductDao productDao) {
+    public ProductsController(ProductDao productDao, ObjectMapper objectMapper, ProductSearchIndex searchIndex,
+                              CatalogVersion catalogVersion, ProductBulkTransfer bulkTransfer) {
         this.productDao = productDao;
+        this.objectMapper = objectMapper;
+        this.searchIndex = searchIndex;
+        this.catalogVersion = catalogVersion;
+        this.bulkTransfer = bulkTransfer;
     }
 
+    // answers 304 Not Modified when the client's If-None-Match still matches the catalog version
     @GetMapping("")
     @PreAuthorize("permitAll()")
-    public List<Product> search(@RequestParam(name = "cat", required = false) Integer categoryId,
-                                @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
-                                @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
-                                @RequestParam(name = "color", required = false) String color
+    public ResponseEntity<List<Product>> search(@RequestParam(name = "cat", required = false) Integer categoryId,
+                                                @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+                                                @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
+                                                @RequestParam(name = "color", required = false) String color,
+                                                WebRequest request
+    ) {
+        String etag = catalogVersion.getETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        try {
+            return revalidated(etag, productDao.search(categoryId, minPrice, maxPrice, color));
+        } catch (Exception ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // keyset-paginated variant of search, e.g. /products/page?cat=1&size=50&token=...
+    @GetMapping("page")
+    @PreAuthorize("permitAll()")
+    public ProductPage searchPage(@RequestParam(name = "cat", required = false) Integer categoryId,
+                                  @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+                                  @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
+                                  @RequestParam(name = "color", required = false) String color,
+                                  @RequestParam(name = "size", defaultValue = "50") int size,
+                                  @RequestParam(name = "token", required = false) String token
     ) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        Integer afterProductId = ContinuationTokens.decode(token);
+
         try {
-            return productDao.search(categoryId, minPrice, maxPrice, color);
+            // ask for one extra row to find out whether another page follows
+            List<Product> products = productDao.search(categoryId, minPrice, maxPrice, color, afterProductId, size + 1);
+
+            String nextToken = null;
+            if (products.size() > size) {
+                products = products.subList(0, size);
+                nextToken = ContinuationTokens.encode(products.get(size - 1).getProductId());
+            }
+            return new ProductPage(products, nextToken);
         } catch (Exception ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
         }
     }
 
+    // streams the full search result as a JSON array, writing each row as it comes off the database.
+    // A failure part way must not look like a short but complete array: the array is only closed after the
+    // last row, and the exception goes back to the container, which drops the connection once rows were sent
+    @GetMapping("stream")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<StreamingResponseBody> searchStream(@RequestParam(name = "cat", required = false) Integer categoryId,
+                                                              @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+                                                              @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
+                                                              @RequestParam(name = "color", required = false) String color
+    ) {
+        StreamingResponseBody body = outputStream -> {
+            // not closed on failure, and closing would otherwise write the missing brackets itself
+            JsonGenerator json = objectMapper.getFactory().createGenerator(outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartArray();
+            productDao.streamSearch(categoryId, minPrice, maxPrice, color, product -> {
+                try {
+                    json.writeObject(product);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+            json.close();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    // keyword search with facet counts, answered from the in-memory index, e.g. /products/search?q=red+shirt&cat=1
+    @GetMapping("search")
+    @PreAuthorize("permitAll()")
+    public ProductSearchResult keywordSearch(@RequestParam(name = "q", required = false) String query,
+                                             @RequestParam(name = "cat", required = false) Integer categoryId,
+                                             @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+                                             @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
+                                             @RequestParam(name = "color", required = false) String color,
+                                             @RequestParam(name = "limit", defaultValue = "50") int limit
+    ) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        // an index that couldn't be loaded yet would answer with no matches, which looks like a real result
+        if (!searchIndex.isBuilt()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Search is not available yet, please try again.");
+        }
+        return searchIndex.search(query, categoryId, color, minPrice, maxPrice, limit);
+    }
+
     @GetMapping("{id}")
     @PreAuthorize("permitAll()")
-    public Product getById(@PathVariable int id) {
+    public ResponseEntity<Product> getById(@PathVariable int id, WebRequest request) {
+        String etag = catalogVersion.getETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
         try {
             var product = productDao.getById(id);
 
             if (product == null)
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND);
 
-            return product;
+            return revalidated(etag, product);
         } catch (Exception ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
         }
@@ -61,6 +185,43 @@ public class ProductsController {
         }
     }
 
+    // the upload is stored in a temporary file and validated before the insert starts, so neither the size
+    // of the file nor the speed of the client decides how long the transaction stays open
+    @PostMapping(value = "import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ProductImportResult importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+        ProductBulkTransfer.Format format = contentType.isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? ProductBulkTransfer.Format.CSV
+                : ProductBulkTransfer.Format.NDJSON;
+
+        try {
+            return new ProductImportResult(bulkTransfer.importProducts(body, format));
+        } catch (ProductImportException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (Exception ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // the whole catalog as csv or ndjson, e.g. /products/export?format=ndjson; read into a temporary file
+    // first, so the connection goes back to the pool before the download starts
+    @GetMapping("export")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(name = "format", defaultValue = "csv") String format) {
+        ProductBulkTransfer.Format exportFormat;
+        try {
+            exportFormat = ProductBulkTransfer.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format must be csv or ndjson.");
+        }
+
+        boolean csv = exportFormat == ProductBulkTransfer.Format.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products." + (csv ? "csv" : "ndjson"))
+                .body(outputStream -> bulkTransfer.exportProducts(outputStream, exportFormat));
+    }
+
     @PutMapping("{id}")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     public void updateProduct(@PathVariable int id, @RequestBody Product product) {
@@ -85,4 +246,12 @@ public class ProductsController {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
         }
     }
+
+    // no-cache lets clients store the response but makes them check the ETag before every reuse
+    private static <T> ResponseEntity<T> revalidated(String etag, T body) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(body);
+    }
 }
@@ -8,6 +8,7 @@ import org.springframework.web.server.ResponseStatusException;
 import org.yearup.data.ProductDao;
 import org.yearup.data.ShoppingCartDao;
 import org.yearup.data.UserDao;
+import org.yearup.models.CartDelta;
 import org.yearup.models.QuantityUpdateDto;
 import org.yearup.models.ShoppingCart;
 import org.yearup.models.User;
@@ -22,6 +23,11 @@ import java.security.Principal;
 @CrossOrigin
 
 public class ShoppingCartController {
+    // changes answer with a CartDelta; a client that still wants the whole cart back sends
+    // "Prefer: return=representation" (RFC 7240)
+    private static final String PREFER = "Prefer";
+    private static final String FULL_CART = "return=representation";
+
     // a shopping cart requires
     private ShoppingCartDao shoppingCartDao;
     private UserDao userDao;
@@ -67,7 +73,8 @@ public class ShoppingCartController {
     // add a POST method to add a product to the cart - the url should be
     // https://localhost:8080/cart/products/15 (15 is the productId to be added
     @PostMapping("/products/{productId}")
-    public ShoppingCart addToCart(@PathVariable int productId, Principal principal) {
+    public Object addToCart(@PathVariable int productId, Principal principal,
+                            @RequestHeader(name = PREFER, required = false) String prefer) {
         try {
             // Get the logged-in user's username and their user ID
             String username = principal.getName();
@@ -77,21 +84,9 @@ public class ShoppingCartController {
             }
             int userId = user.getId();
 
-            // Check if product already exists in cart
-            boolean exists = shoppingCartDao.existsInCart(userId, productId);
-
-            if (exists) {
-                // Get current cart
-                ShoppingCart cart = shoppingCartDao.getByUserId(userId);
-                int currentQty = cart.get(productId).getQuantity();
-
-                // Increment quantity by 1
-                shoppingCartDao.updateQuantity(userId, productId, currentQty + 1);
-            } else {
-                // Add product to cart with quantity 1
-                shoppingCartDao.addProduct(userId, productId);
-            }
-            return shoppingCartDao. getByUserId(userId); // Return the updated cart
+            // Insert the product with quantity 1 or increment its quantity, and return the changed line
+            CartDelta delta = shoppingCartDao.incrementProduct(userId, productId);
+            return wantsFullCart(prefer) ? shoppingCartDao.getByUserId(userId) : delta;
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -103,9 +98,10 @@ public class ShoppingCartController {
     // https://localhost:8080/cart/products/15 (15 is the productId to be updated)
     // the BODY should be a ShoppingCartItem - quantity is the only value that will be updated
     @PutMapping("/products/{productId}")
-    public void updateCartItem(@PathVariable int productId,
-                               @RequestBody QuantityUpdateDto dto,
-                               Principal principal) {
+    public Object updateCartItem(@PathVariable int productId,
+                                 @RequestBody QuantityUpdateDto dto,
+                                 Principal principal,
+                                 @RequestHeader(name = PREFER, required = false) String prefer) {
         try {
             // Get the username of the currently logged-in user
             String userName = principal.getName();
@@ -118,13 +114,12 @@ public class ShoppingCartController {
             }
             int userId = user.getId();
 
-            // Check if the product exists in the user's cart before updating
-            if (!shoppingCartDao.existsInCart(userId, productId)) {
+            // Update the quantity; no delta means the product is not in the user's cart
+            CartDelta delta = shoppingCartDao.setQuantity(userId, productId, dto.getQuantity());
+            if (delta == null) {
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found in shopping cart.");
             }
-
-            // Call DAO to update the quantity of the product in the cart
-            shoppingCartDao.updateQuantity(userId, productId, dto.getQuantity());
+            return wantsFullCart(prefer) ? shoppingCartDao.getByUserId(userId) : delta;
         } catch (ResponseStatusException e) {
             throw e; // rethrow known exception
         } catch (Exception e) {
@@ -135,7 +130,8 @@ public class ShoppingCartController {
     // add a DELETE method to clear all products from the current users cart
     // https://localhost:8080/cart
     @DeleteMapping
-    public ShoppingCart clearCart(Principal principal) {
+    public Object clearCart(Principal principal,
+                            @RequestHeader(name = PREFER, required = false) String prefer) {
         try {
             // Get logged in user
             String userName = principal.getName();
@@ -149,11 +145,15 @@ public class ShoppingCartController {
             // Clear the cart
             shoppingCartDao.clearCart(userId);
 
-            return shoppingCartDao.getByUserId(userId); // Return the updated cart
+            // a cleared cart is known to be empty, there is nothing to read back
+            return wantsFullCart(prefer) ? new ShoppingCart() : CartDelta.cleared();
         } catch (Exception e) {
             e.printStackTrace();
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to clear cart.");
         }
     }
 
+    private static boolean wantsFullCart(String prefer) {
+        return prefer != null && prefer.contains(FULL_CART);
+    }
 }
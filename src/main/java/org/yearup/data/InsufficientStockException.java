@@ -0,0 +1,15 @@
+package org.yearup.data;
+
+// Thrown when an order asks for more units of a product than are in stock
+public class InsufficientStockException extends RuntimeException {
+    private final int productId;
+
+    public InsufficientStockException(int productId) {
+        super("Insufficient stock for product ID: " + productId);
+        this.productId = productId;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+}
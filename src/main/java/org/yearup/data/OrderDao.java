@@ -1,7 +1,26 @@
 package org.yearup.data;
 
 import org.yearup.models.Order;
+import org.yearup.models.OrderLineItem;
+import org.yearup.models.OrderSummary;
+
+import java.util.List;
 
 public interface OrderDao {
     Order create(Order order);
-}
\ No newline at end of file
+
+    // Places the order as one unit of work: inserts the order and its line items, takes the ordered
+    // quantities out of stock, empties the user's shopping cart and queues the follow-up work in the
+    // order outbox, or does none of it
+    Order createFromCart(Order order, List<OrderLineItem> lineItems);
+
+    // the order with its line items, or null
+    Order getById(int orderId);
+
+    // A page of the user's orders with their line items, newest first. Pass the id of the last order
+    // of the previous page as beforeOrderId to continue, or null for the first page
+    List<Order> listByUserId(int userId, Integer beforeOrderId, int pageSize);
+
+    // same paging as listByUserId, but only the totals of each order
+    List<OrderSummary> listSummariesByUserId(int userId, Integer beforeOrderId, int pageSize);
+}
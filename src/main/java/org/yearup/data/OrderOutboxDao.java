@@ -0,0 +1,25 @@
+package org.yearup.data;
+
+import org.yearup.models.OutboxEntry;
+
+import java.time.Instant;
+import java.util.List;
+
+// The outbox row itself is written by OrderDao.createFromCart, in the same transaction as the order
+public interface OrderOutboxDao {
+    // Claims the pending entry of this order until lockedUntil, in one atomic update, so only one instance
+    // works on an order at a time. Returns null when the order is done, failed, or claimed by someone else
+    OutboxEntry claim(int orderId, Instant now, Instant lockedUntil);
+
+    // pending entries whose next attempt is due and that nobody holds a claim on, oldest first
+    List<OutboxEntry> getDue(Instant now, int limit);
+
+    void markStageCompleted(int outboxId, int nextStageIndex);
+
+    void markDone(int outboxId);
+
+    // also gives up the claim, so whichever instance retries first can claim the entry again
+    void markRetry(int outboxId, int attempts, Instant nextAttemptAt, String error);
+
+    void markFailed(int outboxId, int attempts, String error);
+}
@@ -3,17 +3,35 @@ package org.yearup.data;
 import org.yearup.models.Product;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ProductDao {
     List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color);
 
+    // Keyset pagination: returns at most pageSize products with an id greater than afterProductId, ordered by id
+    List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, Integer afterProductId, int pageSize);
+
+    // Hands every matching product to the consumer as it is read, without collecting the result in memory
+    void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, Consumer<Product> consumer);
+
     List<Product> listByCategoryId(int categoryId);
 
     Product getById(int productId);
 
+    // Loads all requested products in a single round trip; ids that don't exist are simply absent
+    List<Product> getByIds(Collection<Integer> productIds);
+
     Product create(Product product);
 
+    // Inserts everything the iterator yields in JDBC batches of batchSize, all in one transaction.
+    // Products are pulled one at a time, so a streaming source keeps memory use constant; the transaction
+    // stays open until the iterator is done, so it should read from something local, not from a client.
+    // Returns the number of inserted products
+    int createAll(Iterator<Product> products, int batchSize);
+
     void update(int productId, Product product);
 
     void delete(int productId);
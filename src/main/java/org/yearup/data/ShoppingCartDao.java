@@ -1,16 +1,27 @@
 package org.yearup.data;
 
+import org.yearup.models.CartDelta;
 import org.yearup.models.ShoppingCart;
 
 public interface ShoppingCartDao {
     ShoppingCart getByUserId(int userId);
 
-    boolean existsInCart(int userId, int productId);
+    // Adds one unit of the product in a single atomic statement (insert with quantity 1, or quantity + 1)
+    // and returns the changed line and the new cart total
+    CartDelta incrementProduct(int userId, int productId);
 
-    void addProduct(int userId, int productId);
-
-    void updateQuantity(int userId, int productId, int quantity);
+    // Sets the quantity of a line already in the cart and returns the changed line and the new cart total,
+    // or null when the product is not in the cart
+    CartDelta setQuantity(int userId, int productId, int quantity);
 
     void clearCart(int userId);
 
+    // writes any cart changes still held in memory, so the shopping_cart table is up to date for this user
+    default void flush(int userId) {
+    }
+
+    // forgets anything held in memory for this user, the next access reads the cart from the database again
+    default void evict(int userId) {
+    }
+
 }
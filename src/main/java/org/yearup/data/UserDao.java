@@ -17,4 +17,7 @@ public interface UserDao {
     User create(User user);
 
     boolean exists(String username);
+
+    // stores a new hash for an existing user, e.g. after a rehash on login
+    void updatePassword(String username, String hashedPassword);
 }
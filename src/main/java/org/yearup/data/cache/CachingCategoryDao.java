@@ -0,0 +1,142 @@
+package org.yearup.data.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CategoryDao;
+import org.yearup.data.events.CategoriesChangedEvent;
+import org.yearup.data.events.ProductsChangedEvent;
+import org.yearup.data.mysql.MySqlCategoryDao;
+import org.yearup.models.Category;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves the category list from an immutable snapshot that also carries each category's product
+ * count and price range. Reads never lock and never query; the snapshot is rebuilt as a whole when
+ * a category is written, and dropped when products change so the next read reloads the counts.
+ * Stock changes from checkout leave it alone, since stock is not part of the snapshot.
+ */
+@Component
+@Primary
+public class CachingCategoryDao implements CategoryDao {
+    private static final Logger LOG = LoggerFactory.getLogger(CachingCategoryDao.class);
+
+    private final MySqlCategoryDao delegate;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    // bumped by every invalidation, so a load that started before one doesn't keep its result
+    private final AtomicLong invalidations = new AtomicLong();
+    // a ReentrantLock rather than synchronized: it is held across the query, and a virtual thread
+    // blocked on JDBC inside synchronized would pin its carrier
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    public CachingCategoryDao(MySqlCategoryDao delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<Category> getAllCategories() {
+        return snapshot().categories;
+    }
+
+    @Override
+    public Category getById(int categoryId) {
+        return snapshot().categoriesById.get(categoryId);
+    }
+
+    @Override
+    public Category create(Category category) {
+        return delegate.create(category);
+    }
+
+    @Override
+    public void update(int categoryId, Category category) {
+        delegate.update(categoryId, category);
+    }
+
+    @Override
+    public void delete(int categoryId) {
+        delegate.delete(categoryId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        reload();
+    }
+
+    // admins expect to see their own category change right away, so the snapshot is rebuilt eagerly
+    @EventListener
+    public void onCategoriesChanged(CategoriesChangedEvent event) {
+        reload();
+    }
+
+    // product changes only drop the snapshot and the next read rebuilds it once; never blocks the publisher
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        if (event.isStockOnly()) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        snapshot.set(null);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+        return load();
+    }
+
+    // loads are serialized, so concurrent misses share one query; a snapshot loaded while an
+    // invalidation came in is still returned to this caller, but not kept
+    private Snapshot load() {
+        loadLock.lock();
+        try {
+            Snapshot current = snapshot.get();
+            if (current == null) {
+                long seen = invalidations.get();
+                current = new Snapshot(delegate.getAllWithProductStats());
+                if (invalidations.get() == seen) {
+                    snapshot.set(current);
+                }
+            }
+            return current;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void reload() {
+        loadLock.lock();
+        try {
+            snapshot.set(null);
+            load();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not load the category snapshot, it will be retried on the next read", e);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private static final class Snapshot {
+        private final List<Category> categories;
+        private final Map<Integer, Category> categoriesById;
+
+        private Snapshot(List<Category> categories) {
+            Map<Integer, Category> byId = new HashMap<>();
+            categories.forEach(category -> byId.put(category.getCategoryId(), category));
+
+            this.categories = List.copyOf(categories);
+            this.categoriesById = Map.copyOf(byId);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.yearup.data.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductDao;
+import org.yearup.data.events.ProductsChangedEvent;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache in front of MySqlProductDao. Single products and category listings are served
+ * from memory; every write made through MySqlProductDao publishes a ProductsChangedEvent which drops
+ * the affected entries, so admins never read back a stale row. A load that an invalidation overtakes
+ * is returned to its caller but not cached, since it may have read the row before the change.
+ */
+@Component
+@Primary
+public class CachingProductDao implements ProductDao {
+    private final ProductDao delegate;
+    private final ExpiringLruCache<Integer, Product> products;
+    private final ExpiringLruCache<Integer, List<Product>> productsByCategory;
+
+    public CachingProductDao(MySqlProductDao delegate,
+                             @Value("${easyshop.cache.products.max-size:10000}") int maxSize,
+                             @Value("${easyshop.cache.products.ttl-seconds:300}") long ttlSeconds) {
+        this.delegate = delegate;
+        this.products = new ExpiringLruCache<>(maxSize, ttlSeconds * 1000);
+        this.productsByCategory = new ExpiringLruCache<>(Math.max(1, maxSize / 100), ttlSeconds * 1000);
+    }
+
+    // searches have too many shapes to cache usefully, so they always go to the database
+    @Override
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color) {
+        return delegate.search(categoryId, minPrice, maxPrice, color);
+    }
+
+    @Override
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, Integer afterProductId, int pageSize) {
+        return delegate.search(categoryId, minPrice, maxPrice, color, afterProductId, pageSize);
+    }
+
+    @Override
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, Consumer<Product> consumer) {
+        delegate.streamSearch(categoryId, minPrice, maxPrice, color, consumer);
+    }
+
+    @Override
+    public List<Product> listByCategoryId(int categoryId) {
+        List<Product> cached = productsByCategory.get(categoryId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = productsByCategory.getGeneration();
+        List<Product> loaded = List.copyOf(delegate.listByCategoryId(categoryId));
+        productsByCategory.putUnlessInvalidated(categoryId, loaded, generation);
+        return loaded;
+    }
+
+    @Override
+    public Product getById(int productId) {
+        Product cached = products.get(productId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = products.getGeneration();
+        Product loaded = delegate.getById(productId);
+        if (loaded != null) {
+            products.putUnlessInvalidated(productId, loaded, generation);
+        }
+        return loaded;
+    }
+
+    // only the ids that are not cached yet are loaded, still in a single round trip
+    @Override
+    public List<Product> getByIds(Collection<Integer> productIds) {
+        List<Product> found = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+
+        for (Integer productId : productIds) {
+            Product cached = products.get(productId);
+            if (cached != null) {
+                found.add(cached);
+            } else {
+                missing.add(productId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long generation = products.getGeneration();
+            for (Product loaded : delegate.getByIds(missing)) {
+                products.putUnlessInvalidated(loaded.getProductId(), loaded, generation);
+                found.add(loaded);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Product create(Product product) {
+        return delegate.create(product);
+    }
+
+    @Override
+    public int createAll(Iterator<Product> products, int batchSize) {
+        return delegate.createAll(products, batchSize);
+    }
+
+    @Override
+    public void update(int productId, Product product) {
+        delegate.update(productId, product);
+    }
+
+    @Override
+    public void delete(int productId) {
+        delegate.delete(productId);
+    }
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        event.getProductIds().forEach(products::invalidate);
+
+        // a product can move between categories, so every listing may be affected
+        productsByCategory.invalidateAll();
+    }
+
+    public ExpiringLruCache<Integer, Product> getProductCache() {
+        return products;
+    }
+
+    public ExpiringLruCache<Integer, List<Product>> getCategoryCache() {
+        return productsByCategory;
+    }
+}
@@ -0,0 +1,91 @@
+package org.yearup.data.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.yearup.data.UserDao;
+import org.yearup.data.mysql.MySqlUserDao;
+import org.yearup.models.User;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Caches users by lowercase username in front of MySqlUserDao. Every authenticated cart, order and
+ * profile request starts with a lookup of the caller, so this keeps those requests from querying
+ * the users table each time. Unknown usernames are never cached, so a new registration is seen at once.
+ */
+@Component
+@Primary
+public class CachingUserDao implements UserDao {
+    private final UserDao delegate;
+    private final ExpiringLruCache<String, User> usersByName;
+
+    public CachingUserDao(MySqlUserDao delegate,
+                          @Value("${easyshop.cache.users.max-size:10000}") int maxSize,
+                          @Value("${easyshop.cache.users.ttl-seconds:60}") long ttlSeconds) {
+        this.delegate = delegate;
+        this.usersByName = new ExpiringLruCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    @Override
+    public List<User> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public User getUserById(int userId) {
+        return delegate.getUserById(userId);
+    }
+
+    @Override
+    public User getByUserName(String username) {
+        if (username == null) {
+            return null;
+        }
+
+        String key = key(username);
+        User cached = usersByName.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        User loaded = delegate.getByUserName(username);
+        if (loaded != null) {
+            usersByName.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    @Override
+    public int getIdByUsername(String username) {
+        User user = getByUserName(username);
+        return user != null ? user.getId() : -1;
+    }
+
+    @Override
+    public User create(User user) {
+        User created = delegate.create(user);
+        usersByName.invalidate(key(user.getUsername()));
+        return created;
+    }
+
+    @Override
+    public boolean exists(String username) {
+        return getByUserName(username) != null;
+    }
+
+    @Override
+    public void updatePassword(String username, String hashedPassword) {
+        delegate.updatePassword(username, hashedPassword);
+        usersByName.invalidate(key(username));
+    }
+
+    public ExpiringLruCache<String, User> getCache() {
+        return usersByName;
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,50 @@
+package org.yearup.data.cache;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.yearup.data.events.CategoriesChangedEvent;
+import org.yearup.data.events.ProductsChangedEvent;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counter for the whole catalog, bumped on every product or category write.
+ * Catalog endpoints use it as their ETag, so a client that already has the current version
+ * gets a 304 without the database or Jackson being involved.
+ *
+ * Read the ETag before loading the data it describes: a response may then carry a version that
+ * is older than its content, which only costs a re-download, but never one that is newer.
+ *
+ * The counter only sees writes made through this instance, so the ETag also names the instance and
+ * its run. Behind a load balancer a client moving to another instance downloads once more instead of
+ * getting a 304 for a catalog that instance never served.
+ */
+@Component
+public class CatalogVersion {
+    // new on every start, so neither another instance nor a previous run of this one hands out the same ETag
+    private final String instanceId;
+    private final AtomicLong version = new AtomicLong();
+
+    public CatalogVersion() {
+        this(UUID.randomUUID().toString());
+    }
+
+    CatalogVersion(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public String getETag() {
+        return "\"catalog-" + instanceId + "-" + version.get() + "\"";
+    }
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    @EventListener
+    public void onCategoriesChanged(CategoriesChangedEvent event) {
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,134 @@
+package org.yearup.data.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A small thread-safe in-process cache with a maximum size, a time-to-live per entry and
+ * least-recently-used eviction. Hit, miss and eviction counts are kept so the cache can be monitored.
+ */
+public class ExpiringLruCache<K, V> {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    // accessOrder = true keeps the least recently used entry at the head of the map
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // bumped by every invalidation, guarded by entries
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringLruCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    // the clock returns epoch millis; callers that also check expiry themselves pass the clock they use
+    public ExpiringLruCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    // Returns the cached value, or null when the key is missing or its entry has expired
+    public V get(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt > clock.getAsLong()) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, clock.getAsLong() + ttlMillis);
+    }
+
+    // Stores a value that expires at the given epoch millis instead of after the default time-to-live
+    public void put(K key, V value, long expiresAtMillis) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, expiresAtMillis));
+
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    // Stores a value loaded after getGeneration() returned the given generation, unless something was
+    // invalidated since: the value may have been read before that change and would stay stale until it expires
+    public boolean putUnlessInvalidated(K key, V value, long generation) {
+        synchronized (entries) {
+            if (this.generation != generation) {
+                return false;
+            }
+            put(key, value);
+            return true;
+        }
+    }
+
+    public long getGeneration() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            generation++;
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package org.yearup.data.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+import org.yearup.models.CartDelta;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps active carts in memory in front of MySqlShoppingCartDao. Adding, updating and clearing only
+ * change the in-memory cart and mark it dirty; dirty carts are written to the shopping_cart table
+ * together on a schedule, one MERGE batch and one DELETE batch for all of them. A cart is loaded
+ * from the table on first access, so carts survive a restart up to the last flush.
+ *
+ * Each cart is guarded by one of a fixed set of locks picked by user id. The locks are
+ * ReentrantLocks rather than monitors because a cart is loaded while its lock is held, and a
+ * virtual thread blocked on JDBC inside synchronized would pin its carrier.
+ *
+ * Checkout calls flush(userId) first, so the order transaction always sees the cart as the user
+ * left it, and evict(userId) afterwards, since that transaction empties the cart in the table.
+ * Carts live in this instance only: with more than one instance, requests for a user must be
+ * routed to the same one.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "easyshop.cart.write-behind.enabled", havingValue = "true")
+public class WriteBehindShoppingCartDao implements ShoppingCartDao, MeterBinder {
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindShoppingCartDao.class);
+
+    private static final int STRIPES = 64;
+
+    private final MySqlShoppingCartDao delegate;
+    private final ProductDao productDao;
+    private final long idleTtlMillis;
+    private final LongSupplier clock;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final ConcurrentHashMap<Integer, CartState> carts = new ConcurrentHashMap<>();
+    private final Set<Integer> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    // one flush at a time, so an older snapshot of a cart can never be written after a newer one
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final AtomicLong flushedLines = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+
+    @Autowired
+    public WriteBehindShoppingCartDao(MySqlShoppingCartDao delegate, ProductDao productDao,
+                                      @Value("${easyshop.cart.write-behind.idle-ttl-ms:1800000}") long idleTtlMillis) {
+        this(delegate, productDao, idleTtlMillis, System::currentTimeMillis);
+    }
+
+    WriteBehindShoppingCartDao(MySqlShoppingCartDao delegate, ProductDao productDao, long idleTtlMillis, LongSupplier clock) {
+        this.delegate = delegate;
+        this.productDao = productDao;
+        this.idleTtlMillis = idleTtlMillis;
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public ShoppingCart getByUserId(int userId) {
+        Map<Integer, Integer> quantities;
+
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            quantities = new LinkedHashMap<>(load(userId).quantities);
+        } finally {
+            lock.unlock();
+        }
+
+        return toCart(quantities);
+    }
+
+    @Override
+    public CartDelta incrementProduct(int userId, int productId) {
+        checkProductExists(productId);
+
+        Map<Integer, Integer> quantities;
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            CartState cart = load(userId);
+            cart.quantities.merge(productId, 1, Integer::sum);
+            dirtyUsers.add(userId);
+            quantities = new LinkedHashMap<>(cart.quantities);
+        } finally {
+            lock.unlock();
+        }
+
+        return delta(productId, quantities);
+    }
+
+    @Override
+    public CartDelta setQuantity(int userId, int productId, int quantity) {
+        Map<Integer, Integer> quantities;
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            // like the UPDATE statement, a product that is not in the cart is left out
+            CartState cart = load(userId);
+            if (cart.quantities.replace(productId, quantity) == null) {
+                return null;
+            }
+            dirtyUsers.add(userId);
+            quantities = new LinkedHashMap<>(cart.quantities);
+        } finally {
+            lock.unlock();
+        }
+
+        return delta(productId, quantities);
+    }
+
+    @Override
+    public void clearCart(int userId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            // loaded first, so the flush knows which rows to delete
+            CartState cart = load(userId);
+            if (!cart.quantities.isEmpty()) {
+                cart.quantities.clear();
+                dirtyUsers.add(userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void flush(int userId) {
+        flushLock.lock();
+        try {
+            if (dirtyUsers.remove(userId) && !flushUsers(List.of(userId))) {
+                throw new RuntimeException("Error saving shopping cart for user ID: " + userId);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void evict(int userId) {
+        flushLock.lock();
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            carts.remove(userId);
+            dirtyUsers.remove(userId);
+        } finally {
+            lock.unlock();
+            flushLock.unlock();
+        }
+    }
+
+    // writes every dirty cart, then forgets clean carts nobody has touched for idle-ttl-ms
+    @Scheduled(fixedDelayString = "${easyshop.cart.write-behind.flush-interval-ms:2000}")
+    public void flushDirty() {
+        flushLock.lock();
+        try {
+            if (!dirtyUsers.isEmpty()) {
+                List<Integer> users = new ArrayList<>(dirtyUsers);
+                users.forEach(dirtyUsers::remove);
+                flushUsers(users);
+            }
+            evictIdle();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushDirty();
+    }
+
+    public int size() {
+        return carts.size();
+    }
+
+    public int getDirtyCount() {
+        return dirtyUsers.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("easyshop.cart.active", this, WriteBehindShoppingCartDao::size)
+                .description("Carts held in memory")
+                .register(registry);
+        Gauge.builder("easyshop.cart.dirty", this, WriteBehindShoppingCartDao::getDirtyCount)
+                .description("Carts with changes not yet written to the database")
+                .register(registry);
+        FunctionCounter.builder("easyshop.cart.flushed.lines", flushedLines, AtomicLong::get)
+                .description("Cart lines written or deleted by the write-behind flush")
+                .register(registry);
+        FunctionCounter.builder("easyshop.cart.flush.failures", flushFailures, AtomicLong::get)
+                .description("Carts that could not be written and stay dirty until the next flush")
+                .register(registry);
+    }
+
+    // called with flushLock held and the users already taken off the dirty set;
+    // returns false when any cart could not be written, those carts are dirty again
+    private boolean flushUsers(List<Integer> users) {
+        Map<Integer, Map<Integer, Integer>> changes = new HashMap<>();
+        Map<Integer, Map<Integer, Integer>> snapshots = new HashMap<>();
+
+        for (int userId : users) {
+            ReentrantLock lock = lockFor(userId);
+            lock.lock();
+            try {
+                CartState cart = carts.get(userId);
+                if (cart == null) {
+                    continue;
+                }
+                Map<Integer, Integer> lines = cart.changes();
+                if (!lines.isEmpty()) {
+                    changes.put(userId, lines);
+                    snapshots.put(userId, new HashMap<>(cart.quantities));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (changes.isEmpty()) {
+            return true;
+        }
+
+        if (changes.size() > 1) {
+            try {
+                delegate.saveQuantities(changes);
+                changes.keySet().forEach(userId -> persisted(userId, changes.get(userId), snapshots.get(userId)));
+                return true;
+            } catch (RuntimeException e) {
+                // one bad cart must not keep all the others from being written, they are retried one by one
+            }
+        }
+
+        boolean allSaved = true;
+        for (Map.Entry<Integer, Map<Integer, Integer>> cart : changes.entrySet()) {
+            int userId = cart.getKey();
+            allSaved &= saveCart(userId, cart.getValue(), snapshots.get(userId));
+        }
+        return allSaved;
+    }
+
+    // writes one cart; if that fails because a product was deleted after it was added in memory, the
+    // foreign key would reject the line on every retry, so such lines are dropped and the cart written again
+    private boolean saveCart(int userId, Map<Integer, Integer> lines, Map<Integer, Integer> snapshot) {
+        try {
+            delegate.saveQuantities(Map.of(userId, lines));
+            persisted(userId, lines, snapshot);
+            return true;
+        } catch (RuntimeException e) {
+            if (!dropDeletedProducts(userId, lines)) {
+                failed(userId, e);
+                return false;
+            }
+        }
+
+        Map<Integer, Integer> retryLines;
+        Map<Integer, Integer> retrySnapshot;
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            CartState cart = carts.get(userId);
+            if (cart == null) {
+                return true;
+            }
+            retryLines = cart.changes();
+            retrySnapshot = new HashMap<>(cart.quantities);
+        } finally {
+            lock.unlock();
+        }
+        if (retryLines.isEmpty()) {
+            return true;
+        }
+
+        try {
+            delegate.saveQuantities(Map.of(userId, retryLines));
+            persisted(userId, retryLines, retrySnapshot);
+            return true;
+        } catch (RuntimeException e) {
+            failed(userId, e);
+            return false;
+        }
+    }
+
+    // removes the lines for products that no longer exist from the in-memory cart; false when there were none
+    private boolean dropDeletedProducts(int userId, Map<Integer, Integer> lines) {
+        Set<Integer> written = new HashSet<>();
+        lines.forEach((productId, quantity) -> {
+            if (quantity != null) {
+                written.add(productId);
+            }
+        });
+        if (written.isEmpty()) {
+            return false;
+        }
+
+        Set<Integer> deleted = new HashSet<>(written);
+        try {
+            productDao.getByIds(written).forEach(product -> deleted.remove(product.getProductId()));
+        } catch (RuntimeException e) {
+            return false;
+        }
+        if (deleted.isEmpty()) {
+            return false;
+        }
+
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            CartState cart = carts.get(userId);
+            if (cart != null) {
+                cart.quantities.keySet().removeAll(deleted);
+            }
+        } finally {
+            lock.unlock();
+        }
+        LOG.info("Dropped deleted products {} from the shopping cart of user {}", deleted, userId);
+        return true;
+    }
+
+    private void persisted(int userId, Map<Integer, Integer> lines, Map<Integer, Integer> snapshot) {
+        flushedLines.addAndGet(lines.size());
+
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            CartState cart = carts.get(userId);
+            if (cart != null) {
+                cart.persisted = snapshot;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void failed(int userId, RuntimeException e) {
+        flushFailures.incrementAndGet();
+        dirtyUsers.add(userId);
+        LOG.warn("Could not save shopping cart for user {}, retrying with the next flush", userId, e);
+    }
+
+    // called with flushLock held, so no cart is evicted while its flush is in flight
+    private void evictIdle() {
+        long idleSince = clock.getAsLong() - idleTtlMillis;
+
+        for (int userId : new ArrayList<>(carts.keySet())) {
+            ReentrantLock lock = lockFor(userId);
+            lock.lock();
+            try {
+                CartState cart = carts.get(userId);
+                if (cart != null && cart.lastAccess <= idleSince && !dirtyUsers.contains(userId)) {
+                    carts.remove(userId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // called with the user's lock held
+    private CartState load(int userId) {
+        CartState cart = carts.get(userId);
+        if (cart == null) {
+            cart = new CartState(delegate.getQuantities(userId));
+            carts.put(userId, cart);
+        }
+        cart.lastAccess = clock.getAsLong();
+        return cart;
+    }
+
+    // the table's foreign key used to reject unknown products, now nothing is written until the flush
+    private void checkProductExists(int productId) {
+        if (productDao.getById(productId) == null) {
+            throw new RuntimeException("Error adding product to cart.");
+        }
+    }
+
+    // products are resolved outside the user's lock, through the product cache
+    private ShoppingCart toCart(Map<Integer, Integer> quantities) {
+        ShoppingCart cart = new ShoppingCart();
+        if (quantities.isEmpty()) {
+            return cart;
+        }
+        for (Product product : productDao.getByIds(quantities.keySet())) {
+            cart.add(new ShoppingCartItem(product, quantities.get(product.getProductId())));
+        }
+        return cart;
+    }
+
+    // the line and total as getByUserId would report them, from a copy taken under the user's lock
+    private CartDelta delta(int productId, Map<Integer, Integer> quantities) {
+        ShoppingCart cart = toCart(quantities);
+        ShoppingCartItem line = cart.get(productId);
+        BigDecimal lineTotal = line != null ? line.getLineTotal() : BigDecimal.valueOf(0, 2);
+        return new CartDelta(productId, quantities.get(productId), lineTotal, cart.getTotal());
+    }
+
+    private ReentrantLock lockFor(int userId) {
+        return locks[userId & (STRIPES - 1)];
+    }
+
+    // guarded by the user's lock
+    private static final class CartState {
+        private final Map<Integer, Integer> quantities;
+        // the lines as the table holds them after the last successful flush
+        private Map<Integer, Integer> persisted;
+        private long lastAccess;
+
+        private CartState(Map<Integer, Integer> loaded) {
+            this.quantities = new LinkedHashMap<>(loaded);
+            this.persisted = new HashMap<>(loaded);
+        }
+
+        // product_id -> new quantity for lines that differ from the table, null for lines to delete
+        private Map<Integer, Integer> changes() {
+            Map<Integer, Integer> changes = new HashMap<>();
+            quantities.forEach((productId, quantity) -> {
+                if (!quantity.equals(persisted.get(productId))) {
+                    changes.put(productId, quantity);
+                }
+            });
+            persisted.keySet().forEach(productId -> {
+                if (!quantities.containsKey(productId)) {
+                    changes.put(productId, null);
+                }
+            });
+            return changes;
+        }
+    }
+}
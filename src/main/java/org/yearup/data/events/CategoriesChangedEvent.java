@@ -0,0 +1,16 @@
+package org.yearup.data.events;
+
+/**
+ * Published after a row in the categories table was inserted, updated or deleted.
+ */
+public class CategoriesChangedEvent {
+    private final int categoryId;
+
+    public CategoriesChangedEvent(int categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+}
@@ -0,0 +1,17 @@
+package org.yearup.data.events;
+
+/**
+ * Published after a checkout transaction committed. The order's follow-up work is already in the
+ * outbox at that point, so listeners may pick it up right away or leave it to the outbox scan.
+ */
+public class OrderPlacedEvent {
+    private final int orderId;
+
+    public OrderPlacedEvent(int orderId) {
+        this.orderId = orderId;
+    }
+
+    public int getOrderId() {
+        return orderId;
+    }
+}
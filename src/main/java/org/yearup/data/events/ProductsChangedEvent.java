@@ -0,0 +1,40 @@
+package org.yearup.data.events;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published after one or more rows in the products table were inserted, updated or deleted.
+ * Caches and in-memory views of the catalog listen for this event to drop or refresh stale data.
+ * Checkout only changes stock, which it says with stockOnly, so views that don't show stock can ignore it.
+ */
+public class ProductsChangedEvent {
+    private final List<Integer> productIds;
+    private final boolean stockOnly;
+
+    public ProductsChangedEvent(Collection<Integer> productIds) {
+        this(productIds, false);
+    }
+
+    private ProductsChangedEvent(Collection<Integer> productIds, boolean stockOnly) {
+        this.productIds = List.copyOf(productIds);
+        this.stockOnly = stockOnly;
+    }
+
+    public static ProductsChangedEvent of(int productId) {
+        return new ProductsChangedEvent(List.of(productId));
+    }
+
+    public static ProductsChangedEvent stockChanged(Collection<Integer> productIds) {
+        return new ProductsChangedEvent(productIds, true);
+    }
+
+    public List<Integer> getProductIds() {
+        return productIds;
+    }
+
+    // true when nothing but the stock of these products changed: no price, category or other column
+    public boolean isStockOnly() {
+        return stockOnly;
+    }
+}
@@ -0,0 +1,67 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live view of the JDBC connection pool: active and idle connections come from the dbcp2 pool,
+ * and the time every DAO waited to borrow a connection is recorded by MySqlDaoBase.getConnection.
+ */
+@Component
+public class ConnectionPoolMetrics {
+    private final BasicDataSource pool;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowFailures = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+
+    public ConnectionPoolMetrics(DataSource dataSource) {
+        // other DataSource types (tests, embedded databases) only get the wait time statistics
+        this.pool = dataSource instanceof BasicDataSource ? (BasicDataSource) dataSource : null;
+    }
+
+    void recordBorrow(long waitNanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulate(waitNanos);
+    }
+
+    void recordBorrowFailure() {
+        borrowFailures.increment();
+    }
+
+    public int getActive() {
+        return pool != null ? pool.getNumActive() : 0;
+    }
+
+    public int getIdle() {
+        return pool != null ? pool.getNumIdle() : 0;
+    }
+
+    public int getMaxTotal() {
+        return pool != null ? pool.getMaxTotal() : 0;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public long getBorrowFailures() {
+        return borrowFailures.sum();
+    }
+
+    public double getMeanWaitMillis() {
+        long count = borrowCount.sum();
+        return count == 0 ? 0 : (double) totalWaitNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxWaitMillis() {
+        return (double) maxWaitNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
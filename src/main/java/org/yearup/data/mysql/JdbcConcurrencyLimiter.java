@@ -0,0 +1,98 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of threads that use a connection at the same time to the size of the pool.
+ * With requests on virtual threads there is no thread pool left to bound concurrency, so thousands
+ * of requests could pile onto dbcp2 at once; this fair semaphore makes them queue in order and park
+ * cheaply instead. The permit is returned when the connection handed out is closed.
+ */
+@Component
+@ConditionalOnProperty(name = "easyshop.virtual-threads.enabled", havingValue = "true")
+public class JdbcConcurrencyLimiter {
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final long maxWaitMillis;
+
+    @Autowired
+    public JdbcConcurrencyLimiter(DataSource dataSource,
+                                  @Value("${spring.datasource.dbcp2.max-wait-millis:5000}") long maxWaitMillis) {
+        this(poolSize(dataSource), maxWaitMillis);
+    }
+
+    public JdbcConcurrencyLimiter(int maxPermits, long maxWaitMillis) {
+        this.maxPermits = maxPermits;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(maxPermits, true);
+    }
+
+    public Connection getConnection(DataSource dataSource) throws SQLException {
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out after " + maxWaitMillis + " ms waiting for a database connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            return releasingOnClose(dataSource.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int getMaxPermits() {
+        return maxPermits;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        // close() may be called more than once, the permit is only returned the first time
+                        if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                });
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        if (dataSource instanceof BasicDataSource pool && pool.getMaxTotal() > 0) {
+            return pool.getMaxTotal();
+        }
+        return Integer.MAX_VALUE;
+    }
+}
@@ -1,7 +1,10 @@
 package org.yearup.data.mysql;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.yearup.data.CategoryDao;
+import org.yearup.data.events.CategoriesChangedEvent;
 import org.yearup.models.Category;
 
 import javax.sql.DataSource;
@@ -11,8 +14,17 @@ import java.util.List;
 
 @Component
 public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
+    private final ApplicationEventPublisher events;
+
     public MySqlCategoryDao(DataSource dataSource) {
+        this(dataSource, event -> { });
+    }
+
+    // every write publishes a CategoriesChangedEvent, just like MySqlProductDao does for products
+    @Autowired
+    public MySqlCategoryDao(DataSource dataSource, ApplicationEventPublisher events) {
         super(dataSource);
+        this.events = events;
     }
 
     @Override
@@ -20,7 +32,7 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
         List<Category> categories = new ArrayList<>();
         String sql = "SELECT * FROM categories;";
 
-        try (Connection connection = getConnection();
+        try (Connection connection = getReadConnection(CATALOG);
              PreparedStatement statement = connection.prepareStatement(sql);
              ResultSet row = statement.executeQuery()) {
             while (row.next()) {
@@ -32,11 +44,40 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
         return categories;
     }
 
+    // all categories with their product count and price range, aggregated in a single query
+    public List<Category> getAllWithProductStats() {
+        List<Category> categories = new ArrayList<>();
+        String sql = """
+                SELECT c.category_id, c.name, c.description,
+                       COALESCE(p.product_count, 0) AS product_count, p.min_price, p.max_price
+                FROM categories c
+                LEFT JOIN (SELECT category_id, COUNT(*) AS product_count, MIN(price) AS min_price, MAX(price) AS max_price
+                           FROM products
+                           GROUP BY category_id) p ON p.category_id = c.category_id
+                ORDER BY c.category_id
+                """;
+
+        try (Connection connection = getReadConnection(CATALOG);
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet row = statement.executeQuery()) {
+            while (row.next()) {
+                Category category = mapRow(row);
+                category.setProductCount(row.getInt("product_count"));
+                category.setMinPrice(row.getBigDecimal("min_price"));
+                category.setMaxPrice(row.getBigDecimal("max_price"));
+                categories.add(category);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return categories;
+    }
+
     @Override
     public Category getById(int categoryId) {
         String sql = "SELECT * FROM categories WHERE category_id = ?;";
 
-        try (Connection connection = getConnection();
+        try (Connection connection = getReadConnection(CATALOG);
              PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setInt(1, categoryId);
 
@@ -53,19 +94,21 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
 
     @Override
     public Category create(Category category) {
-        String sql = "INSERT INTO categories (name, description) VALUES (?, ?);";
+        // OUTPUT INSERTED.* returns the stored row, so there is no follow-up getById; it fails once the
+        // table has an enabled trigger, which then needs OUTPUT INTO a table variable instead
+        String sql = "INSERT INTO categories (name, description) OUTPUT INSERTED.* VALUES (?, ?);";
 
         try (Connection connection = getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+             PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setString(1, category.getName());
             statement.setString(2, category.getDescription());
 
-            statement.executeUpdate();
-
-            try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    int categoryId = generatedKeys.getInt(1);
-                    return getById(categoryId);
+            try (ResultSet row = statement.executeQuery()) {
+                if (row.next()) {
+                    Category created = mapRow(row);
+                    recordWrite(CATALOG);
+                    events.publishEvent(new CategoriesChangedEvent(created.getCategoryId()));
+                    return created;
                 }
             }
         } catch (SQLException e) {
@@ -88,6 +131,8 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        recordWrite(CATALOG);
+        events.publishEvent(new CategoriesChangedEvent(categoryId));
     }
 
     @Override
@@ -103,6 +148,8 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        recordWrite(CATALOG);
+        events.publishEvent(new CategoriesChangedEvent(categoryId));
     }
 
     private Category mapRow(ResultSet row) throws SQLException {
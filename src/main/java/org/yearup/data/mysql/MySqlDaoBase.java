@@ -5,9 +5,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
 
 public abstract class MySqlDaoBase {
     private final DataSource dataSource;
+    private ConnectionPoolMetrics poolMetrics;
+    private JdbcConcurrencyLimiter concurrencyLimiter;
+    private ReadReplicaRouting readReplica;
+
+    // read-your-writes scopes: the whole catalog (admin writes), one product (its stock changed at checkout),
+    // or one user's cart and orders
+    protected static final String CATALOG = "catalog";
 
     // Gebruik @Autowired op de constructor om de auto-geconfigureerde DataSource te ontvangen
     @Autowired
@@ -15,7 +24,90 @@ public abstract class MySqlDaoBase {
         this.dataSource = dataSource;
     }
 
+    // optional, DAOs created outside of Spring (tests, benchmarks) simply don't record pool statistics
+    @Autowired(required = false)
+    public void setPoolMetrics(ConnectionPoolMetrics poolMetrics) {
+        this.poolMetrics = poolMetrics;
+    }
+
+    // only present when requests run on virtual threads
+    @Autowired(required = false)
+    public void setConcurrencyLimiter(JdbcConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    // only present when easyshop.datasource.replica.url is set
+    @Autowired(required = false)
+    public void setReadReplica(ReadReplicaRouting readReplica) {
+        this.readReplica = readReplica;
+    }
+
+    protected static String userScope(int userId) {
+        return "user:" + userId;
+    }
+
+    protected static String productScope(int productId) {
+        return "product:" + productId;
+    }
+
+    /**
+     * Connection for a read-only query. It comes from the read replica when one is configured,
+     * unless one of the scopes was written to within the read-your-writes window.
+     */
+    protected Connection getReadConnection(String... scopes) throws SQLException {
+        Connection connection = readReplica != null ? readReplica.getReadConnection(scopes) : null;
+        return connection != null ? connection : getConnection();
+    }
+
+    // call after every write, before anything reads the data back
+    protected void recordWrite(String scope) {
+        if (readReplica != null) {
+            readReplica.recordWrite(scope);
+        }
+    }
+
     protected Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        if (poolMetrics == null) {
+            return borrow();
+        }
+
+        long start = System.nanoTime();
+        try {
+            Connection connection = borrow();
+            poolMetrics.recordBorrow(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException e) {
+            poolMetrics.recordBorrowFailure();
+            throw e;
+        }
+    }
+
+    private Connection borrow() throws SQLException {
+        return concurrencyLimiter != null ? concurrencyLimiter.getConnection(dataSource) : dataSource.getConnection();
+    }
+
+    /**
+     * SQL text for a query whose clauses depend on which optional filters are set. The shape is a bitmask
+     * of those filters; each shape is built once and the same String is handed out from then on, so the
+     * pool's prepared-statement cache and the server's plan cache both see one stable text per shape.
+     */
+    protected static final class SqlShapes {
+        private final AtomicReferenceArray<String> texts;
+        private final IntFunction<String> builder;
+
+        public SqlShapes(int optionalClauses, IntFunction<String> builder) {
+            this.texts = new AtomicReferenceArray<>(1 << optionalClauses);
+            this.builder = builder;
+        }
+
+        public String get(int shape) {
+            String sql = texts.get(shape);
+            if (sql == null) {
+                // two threads may both build it, but only the first one is ever handed out
+                texts.compareAndSet(shape, null, builder.apply(shape));
+                sql = texts.get(shape);
+            }
+            return sql;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,30 +1,242 @@
 package org.yearup.data.mysql;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
+import org.yearup.data.InsufficientStockException;
 import org.yearup.data.OrderDao;
+import org.yearup.data.events.OrderPlacedEvent;
+import org.yearup.data.events.ProductsChangedEvent;
 import org.yearup.models.Order;
+import org.yearup.models.OrderLineItem;
+import org.yearup.models.OrderSummary;
 
 import javax.sql.DataSource;
 import java.sql.*;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
 public class MySqlOrderDao extends MySqlDaoBase implements OrderDao {
+    private static final String INSERT_ORDER_SQL = """
+                INSERT INTO orders (user_id, date, address, city, state, zip, shipping_amount)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_LINE_ITEM_SQL = """
+                INSERT INTO order_line_items (order_id, product_id, sales_price, quantity, discount)
+                VALUES (?, ?, ?, ?, ?)
+            """;
+
+    // the stock check and the decrement happen in one statement, so concurrent checkouts can't oversell
+    private static final String DECREMENT_STOCK_SQL = """
+                UPDATE products SET stock = stock - ?
+                WHERE product_id = ? AND stock >= ?
+            """;
+
+    private static final String CLEAR_CART_SQL = "DELETE FROM shopping_cart WHERE user_id = ?";
+
+    // the follow-up work is recorded with the order, so it can't get lost if the process dies after the commit
+    private static final String INSERT_OUTBOX_SQL = """
+                INSERT INTO order_outbox (order_id, user_id, stage_index, status, attempts, next_attempt_at)
+                VALUES (?, ?, 0, ?, 0, ?)
+            """;
+
+    // orders and their line items come back in one result set: the page of orders is picked first,
+    // then joined, so a customer with many orders still costs one round trip per page
+    private static final String SELECT_ORDERS_WITH_LINE_ITEMS_SQL = """
+                SELECT o.order_id, o.user_id, o.date, o.address, o.city, o.state, o.zip, o.shipping_amount,
+                       li.order_line_item_id, li.product_id, li.sales_price, li.quantity, li.discount
+                FROM (SELECT TOP (?) * FROM orders
+                      WHERE %s
+                      ORDER BY order_id DESC) o
+                LEFT JOIN order_line_items li ON li.order_id = o.order_id
+                ORDER BY o.order_id DESC, li.order_line_item_id
+            """;
+
+    private static final String SELECT_ORDER_SUMMARIES_SQL = """
+                SELECT TOP (?) o.order_id, o.date, o.shipping_amount,
+                       COUNT(li.order_line_item_id) AS line_count,
+                       COALESCE(SUM(li.quantity), 0) AS item_count,
+                       COALESCE(SUM(li.sales_price * li.quantity - li.discount), 0) AS subtotal
+                FROM orders o
+                LEFT JOIN order_line_items li ON li.order_id = o.order_id
+                WHERE %s
+                GROUP BY o.order_id, o.date, o.shipping_amount
+                ORDER BY o.order_id DESC
+            """;
+
+    private final ApplicationEventPublisher events;
 
     public MySqlOrderDao(DataSource dataSource) {
+        this(dataSource, event -> { });
+    }
+
+    @Autowired
+    public MySqlOrderDao(DataSource dataSource, ApplicationEventPublisher events) {
         super(dataSource);
+        this.events = events;
     }
 
     @Override
     public Order create(Order order) {
-        String sql = """
-                    INSERT INTO orders (user_id, date, address, city, state, zip, shipping_amount)
-                    VALUES (?, ?, ?, ?, ?, ?, ?)
-                """;
+        try (Connection conn = getConnection()) {
+            insertOrder(conn, order);
+            recordWrite(userScope(order.getUserId()));
+            return order;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to insert order.", e);
+        }
+    }
+
+    // Runs on a single connection and transaction with a constant number of round trips:
+    // one insert for the order, one batch for the line items, one batch for the stock, one delete for the cart
+    // and one insert into the outbox for the work that happens after checkout
+    @Override
+    public Order createFromCart(Order order, List<OrderLineItem> lineItems) {
+        try (Connection conn = getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try {
+                insertOrder(conn, order);
+                insertLineItems(conn, order.getOrderId(), lineItems);
+                decrementStock(conn, lineItems);
+                clearCart(conn, order.getUserId());
+                insertOutbox(conn, order);
+
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to place order.", e);
+        }
+
+        recordWrite(userScope(order.getUserId()));
+        // only the stock of these products changed, the rest of the catalog can still be read from the replica
+        lineItems.forEach(item -> recordWrite(productScope(item.getProductId())));
+
+        // stock levels changed, so cached copies of these products are stale now
+        events.publishEvent(ProductsChangedEvent.stockChanged(lineItems.stream()
+                .map(OrderLineItem::getProductId)
+                .collect(Collectors.toList())));
+        events.publishEvent(new OrderPlacedEvent(order.getOrderId()));
+
+        order.setLineItems(lineItems);
+        return order;
+    }
+
+    @Override
+    public Order getById(int orderId) {
+        // the owner isn't known up front, so this stays on the primary
+        List<Order> orders = queryOrders(null, SELECT_ORDERS_WITH_LINE_ITEMS_SQL.formatted("order_id = ?"), 1, orderId);
+        return orders.isEmpty() ? null : orders.get(0);
+    }
+
+    @Override
+    public List<Order> listByUserId(int userId, Integer beforeOrderId, int pageSize) {
+        if (beforeOrderId == null) {
+            return queryOrders(userScope(userId), SELECT_ORDERS_WITH_LINE_ITEMS_SQL.formatted("user_id = ?"), pageSize, userId);
+        }
+        return queryOrders(userScope(userId), SELECT_ORDERS_WITH_LINE_ITEMS_SQL.formatted("user_id = ? AND order_id < ?"), pageSize, userId, beforeOrderId);
+    }
+
+    @Override
+    public List<OrderSummary> listSummariesByUserId(int userId, Integer beforeOrderId, int pageSize) {
+        String sql = SELECT_ORDER_SUMMARIES_SQL.formatted(beforeOrderId == null ? "o.user_id = ?" : "o.user_id = ? AND o.order_id < ?");
+        List<OrderSummary> summaries = new ArrayList<>();
+
+        try (Connection conn = getReadConnection(userScope(userId));
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, pageSize);
+            stmt.setInt(2, userId);
+            if (beforeOrderId != null) {
+                stmt.setInt(3, beforeOrderId);
+            }
+
+            try (ResultSet row = stmt.executeQuery()) {
+                while (row.next()) {
+                    summaries.add(new OrderSummary(
+                            row.getInt("order_id"),
+                            row.getDate("date").toLocalDate(),
+                            row.getInt("line_count"),
+                            row.getInt("item_count"),
+                            row.getBigDecimal("subtotal"),
+                            row.getBigDecimal("shipping_amount")));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load order summaries.", e);
+        }
+        return summaries;
+    }
+
+    // the rows arrive sorted by order, so consecutive rows of the same order are folded into one Order;
+    // without a read scope the query runs on the primary
+    private List<Order> queryOrders(String readScope, String sql, int pageSize, int... params) {
+        Map<Integer, Order> orders = new LinkedHashMap<>();
 
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = readScope != null ? getReadConnection(readScope) : getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, pageSize);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setInt(i + 2, params[i]);
+            }
+
+            try (ResultSet row = stmt.executeQuery()) {
+                while (row.next()) {
+                    Order order = orders.computeIfAbsent(row.getInt("order_id"), orderId -> new Order());
+                    if (order.getLineItems() == null) {
+                        mapOrder(row, order);
+                    }
 
+                    // an order without line items still comes back once, with a null line item
+                    row.getInt("order_line_item_id");
+                    if (!row.wasNull()) {
+                        order.getLineItems().add(mapLineItem(row));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load orders.", e);
+        }
+        return new ArrayList<>(orders.values());
+    }
+
+    private static void mapOrder(ResultSet row, Order order) throws SQLException {
+        order.setOrderId(row.getInt("order_id"));
+        order.setUserId(row.getInt("user_id"));
+        order.setDate(row.getDate("date").toLocalDate());
+        order.setAddress(row.getString("address"));
+        order.setCity(row.getString("city"));
+        order.setState(row.getString("state"));
+        order.setZip(row.getString("zip"));
+        order.setShippingAmount(row.getBigDecimal("shipping_amount"));
+        order.setLineItems(new ArrayList<>());
+    }
+
+    private static OrderLineItem mapLineItem(ResultSet row) throws SQLException {
+        OrderLineItem item = new OrderLineItem();
+        item.setOrderLineItemId(row.getInt("order_line_item_id"));
+        item.setOrderId(row.getInt("order_id"));
+        item.setProductId(row.getInt("product_id"));
+        item.setSalesPrice(row.getBigDecimal("sales_price"));
+        item.setQuantity(row.getInt("quantity"));
+        item.setDiscount(row.getBigDecimal("discount"));
+        return item;
+    }
+
+    private void insertOrder(Connection conn, Order order) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_ORDER_SQL, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setInt(1, order.getUserId());
             stmt.setDate(2, Date.valueOf(LocalDate.now()));
             stmt.setString(3, order.getAddress());
@@ -35,14 +247,63 @@ public class MySqlOrderDao extends MySqlDaoBase implements OrderDao {
 
             stmt.executeUpdate();
 
-            ResultSet keys = stmt.getGeneratedKeys();
-            if (keys.next()) {
-                order.setOrderId(keys.getInt(1));
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    order.setOrderId(keys.getInt(1));
+                }
             }
+        }
+    }
 
-            return order;
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to insert order.", e);
+    private void insertLineItems(Connection conn, int orderId, List<OrderLineItem> lineItems) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_LINE_ITEM_SQL)) {
+            for (OrderLineItem item : lineItems) {
+                item.setOrderId(orderId);
+
+                stmt.setInt(1, orderId);
+                stmt.setInt(2, item.getProductId());
+                stmt.setBigDecimal(3, item.getSalesPrice());
+                stmt.setInt(4, item.getQuantity());
+                stmt.setBigDecimal(5, item.getDiscount());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void decrementStock(Connection conn, List<OrderLineItem> lineItems) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(DECREMENT_STOCK_SQL)) {
+            for (OrderLineItem item : lineItems) {
+                stmt.setInt(1, item.getQuantity());
+                stmt.setInt(2, item.getProductId());
+                stmt.setInt(3, item.getQuantity());
+                stmt.addBatch();
+            }
+
+            // a row that wasn't updated means that product didn't have enough stock left
+            int[] updated = stmt.executeBatch();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    throw new InsufficientStockException(lineItems.get(i).getProductId());
+                }
+            }
+        }
+    }
+
+    private void insertOutbox(Connection conn, Order order) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_OUTBOX_SQL)) {
+            stmt.setInt(1, order.getOrderId());
+            stmt.setInt(2, order.getUserId());
+            stmt.setString(3, MySqlOrderOutboxDao.STATUS_PENDING);
+            stmt.setTimestamp(4, Timestamp.from(Instant.now()));
+            stmt.executeUpdate();
+        }
+    }
+
+    private void clearCart(Connection conn, int userId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(CLEAR_CART_SQL)) {
+            stmt.setInt(1, userId);
+            stmt.executeUpdate();
         }
     }
 }
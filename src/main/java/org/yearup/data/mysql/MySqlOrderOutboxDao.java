@@ -0,0 +1,152 @@
+package org.yearup.data.mysql;
+
+import org.springframework.stereotype.Component;
+import org.yearup.data.OrderOutboxDao;
+import org.yearup.models.OutboxEntry;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class MySqlOrderOutboxDao extends MySqlDaoBase implements OrderOutboxDao {
+    static final String STATUS_PENDING = "PENDING";
+    static final String STATUS_DONE = "DONE";
+    static final String STATUS_FAILED = "FAILED";
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    public MySqlOrderOutboxDao(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    // the claim is taken and the row read back in one statement; a claim that has run out
+    // (the instance holding it died) can be taken over
+    @Override
+    public OutboxEntry claim(int orderId, Instant now, Instant lockedUntil) {
+        String sql = """
+                UPDATE order_outbox SET locked_until = ?
+                OUTPUT inserted.*
+                WHERE order_id = ? AND status = ? AND (locked_until IS NULL OR locked_until < ?)
+                """;
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setTimestamp(1, Timestamp.from(lockedUntil));
+            statement.setInt(2, orderId);
+            statement.setString(3, STATUS_PENDING);
+            statement.setTimestamp(4, Timestamp.from(now));
+
+            try (ResultSet row = statement.executeQuery()) {
+                if (row.next()) {
+                    return mapRow(row);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return null;
+    }
+
+    @Override
+    public List<OutboxEntry> getDue(Instant now, int limit) {
+        List<OutboxEntry> entries = new ArrayList<>();
+        String sql = """
+                SELECT TOP (?) * FROM order_outbox
+                WHERE status = ? AND next_attempt_at <= ? AND (locked_until IS NULL OR locked_until < ?)
+                ORDER BY outbox_id
+                """;
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, limit);
+            statement.setString(2, STATUS_PENDING);
+            statement.setTimestamp(3, Timestamp.from(now));
+            statement.setTimestamp(4, Timestamp.from(now));
+
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    entries.add(mapRow(row));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return entries;
+    }
+
+    @Override
+    public void markStageCompleted(int outboxId, int nextStageIndex) {
+        String sql = "UPDATE order_outbox SET stage_index = ?, attempts = 0, last_error = NULL WHERE outbox_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, nextStageIndex);
+            statement.setInt(2, outboxId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void markDone(int outboxId) {
+        String sql = "UPDATE order_outbox SET status = ?, last_error = NULL WHERE outbox_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, STATUS_DONE);
+            statement.setInt(2, outboxId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void markRetry(int outboxId, int attempts, Instant nextAttemptAt, String error) {
+        String sql = "UPDATE order_outbox SET attempts = ?, next_attempt_at = ?, last_error = ?, locked_until = NULL WHERE outbox_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, attempts);
+            statement.setTimestamp(2, Timestamp.from(nextAttemptAt));
+            statement.setString(3, truncate(error));
+            statement.setInt(4, outboxId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void markFailed(int outboxId, int attempts, String error) {
+        String sql = "UPDATE order_outbox SET status = ?, attempts = ?, last_error = ? WHERE outbox_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, STATUS_FAILED);
+            statement.setInt(2, attempts);
+            statement.setString(3, truncate(error));
+            statement.setInt(4, outboxId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private static OutboxEntry mapRow(ResultSet row) throws SQLException {
+        return new OutboxEntry(
+                row.getInt("outbox_id"),
+                row.getInt("order_id"),
+                row.getInt("user_id"),
+                row.getInt("stage_index"),
+                row.getInt("attempts"));
+    }
+}
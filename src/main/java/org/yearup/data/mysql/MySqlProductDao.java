@@ -1,6 +1,9 @@
 package org.yearup.data.mysql;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
+import org.yearup.data.events.ProductsChangedEvent;
 import org.yearup.models.Product;
 import org.yearup.data.ProductDao;
 
@@ -8,12 +11,52 @@ import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Component
 public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
+    private static final int MAX_IDS_PER_QUERY = 1000;
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO products(name, price, category_id, description, color, image_url, stock, featured) " +
+            " VALUES (?, ?, ?, ?, ?, ?, ?, ?);";
+
+    // OUTPUT INSERTED.* hands back the stored row, identity and defaults included, as the statement's result set;
+    // SQL Server refuses OUTPUT without INTO on a table with an enabled trigger, so adding one to products
+    // means switching this to OUTPUT INTO a table variable
+    private static final String INSERT_RETURNING_SQL = "INSERT INTO products(name, price, category_id, description, color, image_url, stock, featured) " +
+            " OUTPUT INSERTED.* " +
+            " VALUES (?, ?, ?, ?, ?, ?, ?, ?);";
+
+    // bits of a search shape, one per optional filter
+    private static final int CATEGORY = 1;
+    private static final int MIN_PRICE = 2;
+    private static final int MAX_PRICE = 4;
+    private static final int COLOR = 8;
+    private static final int AFTER_ID = 16;
+
+    private static final SqlShapes SEARCH_SQL = new SqlShapes(4, MySqlProductDao::filteredSelect);
+    private static final SqlShapes PAGE_SQL = new SqlShapes(5, shape -> filteredSelect(shape) +
+            ((shape & AFTER_ID) != 0 ? " AND product_id > ?" : "") +
+            " ORDER BY product_id OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY");
+    private static final SqlShapes STREAM_SQL = new SqlShapes(4, shape -> filteredSelect(shape) + " ORDER BY product_id");
+
+    private final ApplicationEventPublisher events;
+
     public MySqlProductDao(DataSource dataSource) {
+        this(dataSource, event -> { });
+    }
+
+    // every write publishes a ProductsChangedEvent so caches of the catalog can drop stale rows
+    @Autowired
+    public MySqlProductDao(DataSource dataSource, ApplicationEventPublisher events) {
         super(dataSource);
+        this.events = events;
     }
 
     @Override
@@ -21,32 +64,12 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         List<Product> products = new ArrayList<>();
 
         // -- CORRECTIE: Dynamisch opbouwen van de query voor T-SQL en betere performance --
-        StringBuilder sql = new StringBuilder("SELECT * FROM products WHERE 1=1");
-        List<Object> params = new ArrayList<>();
-
-        if (categoryId != null) {
-            sql.append(" AND category_id = ?");
-            params.add(categoryId);
-        }
-        if (minPrice != null) {
-            sql.append(" AND price >= ?");
-            params.add(minPrice);
-        }
-        if (maxPrice != null) {
-            sql.append(" AND price <= ?");
-            params.add(maxPrice);
-        }
-        if (color != null && !color.isEmpty()) {
-            sql.append(" AND color LIKE ?");
-            params.add("%" + color + "%");
-        }
+        String sql = searchSql(categoryId, minPrice, maxPrice, color);
 
-        try (Connection connection = getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+        try (Connection connection = getReadConnection(CATALOG);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
             // Parameters toevoegen aan de statement
-            for (int i = 0; i < params.size(); i++) {
-                statement.setObject(i + 1, params.get(i));
-            }
+            bindFilters(statement, categoryId, minPrice, maxPrice, color);
 
             try (ResultSet row = statement.executeQuery()) {
                 while (row.next()) {
@@ -61,6 +84,110 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         return products;
     }
 
+    @Override
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, Integer afterProductId, int pageSize) {
+        List<Product> products = new ArrayList<>();
+
+        // seek past the last product of the previous page instead of using OFFSET,
+        // so every page costs the same no matter how deep the client has paged
+        int shape = filterShape(categoryId, minPrice, maxPrice, color) | (afterProductId != null ? AFTER_ID : 0);
+
+        try (Connection connection = getReadConnection(CATALOG);
+             PreparedStatement statement = connection.prepareStatement(PAGE_SQL.get(shape))) {
+            int index = bindFilters(statement, categoryId, minPrice, maxPrice, color);
+            if (afterProductId != null) {
+                statement.setInt(index++, afterProductId);
+            }
+            statement.setInt(index, pageSize);
+
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    products.add(mapRow(row));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return products;
+    }
+
+    @Override
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, Consumer<Product> consumer) {
+        String sql = STREAM_SQL.get(filterShape(categoryId, minPrice, maxPrice, color));
+
+        try (Connection connection = getReadConnection(CATALOG);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            bindFilters(statement, categoryId, minPrice, maxPrice, color);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+
+            // rows are handed over one at a time, so only the current row is kept in memory
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    consumer.accept(mapRow(row));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static String searchSql(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color) {
+        return SEARCH_SQL.get(filterShape(categoryId, minPrice, maxPrice, color));
+    }
+
+    static int filterShape(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color) {
+        int shape = 0;
+        if (categoryId != null) {
+            shape |= CATEGORY;
+        }
+        if (minPrice != null) {
+            shape |= MIN_PRICE;
+        }
+        if (maxPrice != null) {
+            shape |= MAX_PRICE;
+        }
+        if (color != null && !color.isEmpty()) {
+            shape |= COLOR;
+        }
+        return shape;
+    }
+
+    private static String filteredSelect(int shape) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM products WHERE 1=1");
+        if ((shape & CATEGORY) != 0) {
+            sql.append(" AND category_id = ?");
+        }
+        if ((shape & MIN_PRICE) != 0) {
+            sql.append(" AND price >= ?");
+        }
+        if ((shape & MAX_PRICE) != 0) {
+            sql.append(" AND price <= ?");
+        }
+        if ((shape & COLOR) != 0) {
+            sql.append(" AND color LIKE ?");
+        }
+        return sql.toString();
+    }
+
+    // binds the filters in the same order filteredSelect writes their clauses and returns the next parameter index
+    private static int bindFilters(PreparedStatement statement, Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color) throws SQLException {
+        int index = 1;
+        if (categoryId != null) {
+            statement.setInt(index++, categoryId);
+        }
+        if (minPrice != null) {
+            statement.setBigDecimal(index++, minPrice);
+        }
+        if (maxPrice != null) {
+            statement.setBigDecimal(index++, maxPrice);
+        }
+        if (color != null && !color.isEmpty()) {
+            statement.setString(index++, "%" + color + "%");
+        }
+        return index;
+    }
+
     // ... de rest van de klasse (listByCategoryId, getById, create, update, delete, mapRow) blijft ongewijzigd,
     // omdat de gebruikte SQL-syntax al compatibel is met T-SQL.
 
@@ -72,15 +199,15 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         String sql = "SELECT * FROM products " +
                 " WHERE category_id = ? ";
 
-        try (Connection connection = getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(sql);
+        try (Connection connection = getReadConnection(CATALOG);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setInt(1, categoryId);
 
-            ResultSet row = statement.executeQuery();
-
-            while (row.next()) {
-                Product product = mapRow(row);
-                products.add(product);
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    Product product = mapRow(row);
+                    products.add(product);
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -93,14 +220,14 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
     @Override
     public Product getById(int productId) {
         String sql = "SELECT * FROM products WHERE product_id = ?";
-        try (Connection connection = getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(sql);
+        try (Connection connection = getReadConnection(CATALOG, productScope(productId));
+             PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setInt(1, productId);
 
-            ResultSet row = statement.executeQuery();
-
-            if (row.next()) {
-                return mapRow(row);
+            try (ResultSet row = statement.executeQuery()) {
+                if (row.next()) {
+                    return mapRow(row);
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -109,34 +236,54 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
     }
 
     @Override
-    public Product create(Product product) {
+    public List<Product> getByIds(Collection<Integer> productIds) {
+        List<Product> products = new ArrayList<>();
+        if (productIds == null || productIds.isEmpty()) {
+            return products;
+        }
 
-        String sql = "INSERT INTO products(name, price, category_id, description, color, image_url, stock, featured) " +
-                " VALUES (?, ?, ?, ?, ?, ?, ?, ?);";
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
 
-        try (Connection connection = getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
-            statement.setString(1, product.getName());
-            statement.setBigDecimal(2, product.getPrice());
-            statement.setInt(3, product.getCategoryId());
-            statement.setString(4, product.getDescription());
-            statement.setString(5, product.getColor());
-            statement.setString(6, product.getImageUrl());
-            statement.setInt(7, product.getStock());
-            statement.setBoolean(8, product.isFeatured());
+        // SQL Server accepts at most 2100 parameters per statement, so very large id lists are sent in chunks
+        try (Connection connection = getReadConnection(scopes(ids))) {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()));
 
-            int rowsAffected = statement.executeUpdate();
+                String sql = "SELECT * FROM products WHERE product_id IN (" +
+                        String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
 
-            if (rowsAffected > 0) {
-                // Retrieve the generated keys
-                ResultSet generatedKeys = statement.getGeneratedKeys();
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        statement.setInt(i + 1, chunk.get(i));
+                    }
 
-                if (generatedKeys.next()) {
-                    // Retrieve the auto-incremented ID
-                    int productId = generatedKeys.getInt(1);
+                    try (ResultSet row = statement.executeQuery()) {
+                        while (row.next()) {
+                            products.add(mapRow(row));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
 
-                    // get the newly inserted category
-                    return getById(productId);
+        return products;
+    }
+
+    @Override
+    public Product create(Product product) {
+        // one round trip: the insert returns the new row, so there is no follow-up getById
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_RETURNING_SQL)) {
+            setInsertParameters(statement, product);
+
+            try (ResultSet row = statement.executeQuery()) {
+                if (row.next()) {
+                    Product created = mapRow(row);
+                    recordWrite(CATALOG);
+                    events.publishEvent(ProductsChangedEvent.of(created.getProductId()));
+                    return created;
                 }
             }
         } catch (SQLException e) {
@@ -145,6 +292,90 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         return null;
     }
 
+    @Override
+    public int createAll(Iterator<Product> products, int batchSize) {
+        int count = 0;
+        int lastExistingId;
+        List<Integer> insertedIds = List.of();
+
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                lastExistingId = maxProductId(connection);
+
+                while (products.hasNext()) {
+                    setInsertParameters(statement, products.next());
+                    statement.addBatch();
+
+                    if (++count % batchSize == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                if (count % batchSize != 0) {
+                    statement.executeBatch();
+                }
+
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+
+            if (count > 0) {
+                recordWrite(CATALOG);
+                insertedIds = insertedSince(connection, lastExistingId);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        // published once the connection is back in the pool, listeners borrow their own; ids go out in chunks
+        for (int i = 0; i < insertedIds.size(); i += MAX_IDS_PER_QUERY) {
+            events.publishEvent(new ProductsChangedEvent(insertedIds.subList(i, Math.min(i + MAX_IDS_PER_QUERY, insertedIds.size()))));
+        }
+        return count;
+    }
+
+    // batched inserts don't return their generated keys, but identity values only grow, so the new rows
+    // are the ones above the highest id seen before the import
+    private static List<Integer> insertedSince(Connection connection, int lastExistingId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT product_id FROM products WHERE product_id > ? ORDER BY product_id")) {
+            statement.setInt(1, lastExistingId);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+
+            List<Integer> ids = new ArrayList<>();
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    ids.add(row.getInt("product_id"));
+                }
+            }
+            return ids;
+        }
+    }
+
+    private static int maxProductId(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COALESCE(MAX(product_id), 0) FROM products");
+             ResultSet row = statement.executeQuery()) {
+            row.next();
+            return row.getInt(1);
+        }
+    }
+
+    private static void setInsertParameters(PreparedStatement statement, Product product) throws SQLException {
+        statement.setString(1, product.getName());
+        statement.setBigDecimal(2, product.getPrice());
+        statement.setInt(3, product.getCategoryId());
+        statement.setString(4, product.getDescription());
+        statement.setString(5, product.getColor());
+        statement.setString(6, product.getImageUrl());
+        statement.setInt(7, product.getStock());
+        statement.setBoolean(8, product.isFeatured());
+    }
+
     @Override
     public void update(int productId, Product product) {
         String sql = "UPDATE products" +
@@ -158,8 +389,8 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
                 "   , featured = ? " +
                 " WHERE product_id = ?;";
 
-        try (Connection connection = getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(sql);
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setString(1, product.getName());
             statement.setBigDecimal(2, product.getPrice());
             statement.setInt(3, product.getCategoryId());
@@ -174,6 +405,8 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        recordWrite(CATALOG);
+        events.publishEvent(ProductsChangedEvent.of(productId));
     }
 
     @Override
@@ -182,14 +415,16 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         String sql = "DELETE FROM products " +
                 " WHERE product_id = ?;";
 
-        try (Connection connection = getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(sql);
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setInt(1, productId);
 
             statement.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        recordWrite(CATALOG);
+        events.publishEvent(ProductsChangedEvent.of(productId));
     }
 
     protected static Product mapRow(ResultSet row) throws SQLException {
@@ -205,4 +440,15 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
 
         return new Product(productId, name, price, categoryId, description, color, stock, isFeatured, imageUrl);
     }
-}
\ No newline at end of file
+
+    // reads by id also stay on the primary right after a checkout changed the stock of one of the products;
+    // listings only follow catalog writes, a checkout must not take all browsing off the replica
+    private static String[] scopes(List<Integer> productIds) {
+        String[] scopes = new String[productIds.size() + 1];
+        scopes[0] = CATALOG;
+        for (int i = 0; i < productIds.size(); i++) {
+            scopes[i + 1] = productScope(productIds.get(i));
+        }
+        return scopes;
+    }
+}
@@ -21,10 +21,10 @@ public class MySqlProfileDao extends MySqlDaoBase implements ProfileDao {
         String sql = "INSERT INTO profiles (user_id, first_name, last_name, phone, email, address, city, state, zip) " +
                 " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection connection = getConnection()) {
-            // CORRECTIE: De 'user_id' is de PK, maar wordt niet gegenereerd (het is een FK).
-            // PreparedStatement.RETURN_GENERATED_KEYS is hier dus niet nodig.
-            PreparedStatement ps = connection.prepareStatement(sql);
+        // CORRECTIE: De 'user_id' is de PK, maar wordt niet gegenereerd (het is een FK).
+        // PreparedStatement.RETURN_GENERATED_KEYS is hier dus niet nodig.
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, profile.getUserId());
             ps.setString(2, profile.getFirstName());
             ps.setString(3, profile.getLastName());
@@ -51,10 +51,11 @@ public class MySqlProfileDao extends MySqlDaoBase implements ProfileDao {
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, userId);
-            ResultSet rs = stmt.executeQuery();
 
-            if (rs.next()) {
-                return mapRow(rs);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapRow(rs);
+                }
             }
 
             return null;
@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.yearup.data.ProductDao;
 import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.CartDelta;
 import org.yearup.models.Product;
 import org.yearup.models.ShoppingCart;
 import org.yearup.models.ShoppingCartItem;
@@ -11,11 +12,36 @@ import org.yearup.models.ShoppingCartItem;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Component
 public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDao {
+    private static final String SELECT_LINES_SQL = "SELECT product_id, quantity FROM shopping_cart WHERE user_id = ?";
+
+    private static final String SAVE_LINE_SQL = """
+                MERGE shopping_cart WITH (HOLDLOCK) AS target
+                USING (SELECT ? AS user_id, ? AS product_id, ? AS quantity) AS source
+                    ON target.user_id = source.user_id AND target.product_id = source.product_id
+                WHEN MATCHED THEN
+                    UPDATE SET quantity = source.quantity
+                WHEN NOT MATCHED THEN
+                    INSERT (user_id, product_id, quantity) VALUES (source.user_id, source.product_id, source.quantity);
+            """;
+
+    // the second statement of the delta batches, read after the OUTPUT rows of the first
+    private static final String CART_TOTAL_SQL = """
+                SELECT SUM(sc.quantity * p.price) AS total
+                FROM shopping_cart sc
+                    JOIN products p ON p.product_id = sc.product_id
+                WHERE sc.user_id = ?;
+            """;
+
+    private static final String DELETE_LINE_SQL = "DELETE FROM shopping_cart WHERE user_id = ? AND product_id = ?";
+
     private ProductDao productDao;
 
     @Autowired
@@ -25,85 +51,140 @@ public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDa
     }
 
     // Retrieves the shopping cart for a specific user by their user ID
+    // The cart rows are read first and all products are then loaded with one multi-key lookup,
+    // so a cart of any size costs two round trips instead of one query per line
     @Override
     public ShoppingCart getByUserId(int userId) {
         ShoppingCart cart = new ShoppingCart();
 
-        String sql = "SELECT * FROM shopping_cart WHERE user_id = ?";
-
-        try (Connection connection = getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setInt(1, userId);
-            ResultSet row = statement.executeQuery();
+        Map<Integer, Integer> quantities;
+        try (Connection connection = getReadConnection(userScope(userId))) {
+            quantities = readQuantities(connection, userId);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading shopping cart for user ID: " + userId, e);
+        }
 
-            while (row.next()) {
-                int productId = row.getInt("product_id");
-                int quantity = row.getInt("quantity");
+        if (quantities.isEmpty()) {
+            return cart;
+        }
 
-                // Fetch the full product details using ProductDao
-                Product product = productDao.getById(productId);
+        // Fetch the full product details for every line at once using ProductDao
+        for (Product product : productDao.getByIds(quantities.keySet())) {
+            // Create ShoppingCartItem and calculate line total
+            cart.add(new ShoppingCartItem(product, quantities.get(product.getProductId())));
+        }
 
-                // Create ShoppingCartItem and calculate line total
-                ShoppingCartItem item = new ShoppingCartItem(product, quantity);
+        return cart;
+    }
 
-                cart.add(item);
-            }
+    // product_id -> quantity of every line in the user's cart, always read from the primary
+    public Map<Integer, Integer> getQuantities(int userId) {
+        try (Connection connection = getConnection()) {
+            return readQuantities(connection, userId);
         } catch (SQLException e) {
             throw new RuntimeException("Error reading shopping cart for user ID: " + userId, e);
         }
-
-        return cart;
     }
 
-    // Method to check whether a product exists in the user's cart
-    @Override
-    public boolean existsInCart(int userId, int productId) {
-        String sql = "SELECT COUNT(*) FROM shopping_cart WHERE user_id = ? AND product_id = ?";
+    /**
+     * Writes the given lines of several carts in one transaction: user_id -> (product_id -> quantity),
+     * where a null quantity removes the line. Lines to keep go out as one MERGE batch, removed lines
+     * as one DELETE batch. Used by the write-behind cart to flush its coalesced changes.
+     */
+    public void saveQuantities(Map<Integer, Map<Integer, Integer>> quantitiesByUser) {
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
 
-        try (Connection connection = getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setInt(1, userId);
-            statement.setInt(2, productId);
+            try (PreparedStatement save = connection.prepareStatement(SAVE_LINE_SQL);
+                 PreparedStatement delete = connection.prepareStatement(DELETE_LINE_SQL)) {
+                for (Map.Entry<Integer, Map<Integer, Integer>> cart : quantitiesByUser.entrySet()) {
+                    for (Map.Entry<Integer, Integer> line : cart.getValue().entrySet()) {
+                        if (line.getValue() != null) {
+                            save.setInt(1, cart.getKey());
+                            save.setInt(2, line.getKey());
+                            save.setInt(3, line.getValue());
+                            save.addBatch();
+                        } else {
+                            delete.setInt(1, cart.getKey());
+                            delete.setInt(2, line.getKey());
+                            delete.addBatch();
+                        }
+                    }
+                }
+                save.executeBatch();
+                delete.executeBatch();
 
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                int count = resultSet.getInt(1);
-                return count > 0;
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
             }
         } catch (SQLException e) {
-            throw new RuntimeException("Error checking cart existence.", e);
+            throw new RuntimeException("Error saving shopping carts.", e);
         }
 
-        return false;
+        quantitiesByUser.keySet().forEach(userId -> recordWrite(userScope(userId)));
     }
 
-    // Method to add a new product with quantity 1 to the user's shopping cart
+    // Method to add one unit of a product to the user's cart
+    // MERGE inserts or increments the line in one statement; HOLDLOCK keeps two concurrent adds
+    // for the same line from both inserting or from losing an increment. The new quantity and the
+    // price come back through OUTPUT and the cart total is summed in the same batch, so there is no re-read
     @Override
-    public void addProduct(int userId, int productId) {
-        String sql = "INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (?, ?, ?)";
+    public CartDelta incrementProduct(int userId, int productId) {
+        String sql = """
+                    MERGE shopping_cart WITH (HOLDLOCK) AS target
+                    USING (SELECT ? AS user_id, product_id, price FROM products WHERE product_id = ?) AS source
+                        ON target.user_id = source.user_id AND target.product_id = source.product_id
+                    WHEN MATCHED THEN
+                        UPDATE SET quantity = target.quantity + 1
+                    WHEN NOT MATCHED THEN
+                        INSERT (user_id, product_id, quantity) VALUES (source.user_id, source.product_id, 1)
+                    OUTPUT inserted.quantity, source.price;
+                """ + CART_TOTAL_SQL;
 
+        CartDelta delta;
         try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setInt(1, userId);
             statement.setInt(2, productId);
-            statement.setInt(3, 1); // Default quantity is 1
-            statement.executeUpdate();
+            statement.setInt(3, userId);
+            delta = readDelta(statement, productId);
+            recordWrite(userScope(userId));
         } catch (SQLException e) {
             throw new RuntimeException("Error adding product to cart.", e);
         }
+
+        // the source row is missing when the product does not exist, so nothing was merged
+        if (delta == null) {
+            throw new RuntimeException("Error adding product to cart.");
+        }
+        return delta;
     }
 
-    // Method to update the quantity of an existing product in the user's cart
+    // Updates the line and sums the cart total in one batch; OUTPUT returns no row when the line is not in the cart
     @Override
-    public void updateQuantity(int userId, int productId, int newQuantity) {
-        String sql = "UPDATE shopping_cart SET quantity = ? WHERE user_id = ? AND product_id = ?";
+    public CartDelta setQuantity(int userId, int productId, int newQuantity) {
+        String sql = """
+                    UPDATE sc SET quantity = ?
+                    OUTPUT inserted.quantity, p.price
+                    FROM shopping_cart sc
+                        JOIN products p ON p.product_id = sc.product_id
+                    WHERE sc.user_id = ? AND sc.product_id = ?;
+                """ + CART_TOTAL_SQL;
 
         try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setInt(1, newQuantity);
             statement.setInt(2, userId);
             statement.setInt(3, productId);
-            statement.executeUpdate();
+            statement.setInt(4, userId);
+            CartDelta delta = readDelta(statement, productId);
+            recordWrite(userScope(userId));
+            return delta;
         } catch (SQLException e) {
             throw new RuntimeException("Error updating cart quantity.", e);
         }
@@ -118,9 +199,64 @@ public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDa
              PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setInt(1, userId);
             statement.executeUpdate();
+            recordWrite(userScope(userId));
         } catch (SQLException e) {
             throw new RuntimeException("Error clearing shopping cart for user ID: " + userId, e);
         }
     }
 
+    // product_id -> quantity, in the order the rows came back
+    private static Map<Integer, Integer> readQuantities(Connection connection, int userId) throws SQLException {
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_LINES_SQL)) {
+            statement.setInt(1, userId);
+
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    quantities.put(row.getInt("product_id"), row.getInt("quantity"));
+                }
+            }
+        }
+        return quantities;
+    }
+
+    // runs a delta batch: the OUTPUT row of the change (quantity, price), then the cart total;
+    // null when the change touched no row
+    private static CartDelta readDelta(PreparedStatement statement, int productId) throws SQLException {
+        boolean isResultSet = statement.execute();
+
+        Integer quantity = null;
+        BigDecimal price = null;
+        try (ResultSet row = nextResultSet(statement, isResultSet)) {
+            if (row.next()) {
+                quantity = row.getInt(1);
+                price = row.getBigDecimal(2);
+            }
+        }
+
+        BigDecimal total;
+        try (ResultSet row = nextResultSet(statement, statement.getMoreResults())) {
+            total = row.next() ? row.getBigDecimal("total") : null;
+        }
+
+        if (quantity == null) {
+            return null;
+        }
+        return new CartDelta(productId, quantity,
+                price.multiply(BigDecimal.valueOf(quantity)),
+                total != null ? total : BigDecimal.valueOf(0, 2));
+    }
+
+    // skips the update counts the driver reports before the next result set; the batches leave NOCOUNT alone,
+    // because a SET in them would stay on the pooled connection and hide update counts from its next user
+    private static ResultSet nextResultSet(PreparedStatement statement, boolean isResultSet) throws SQLException {
+        while (!isResultSet) {
+            if (statement.getUpdateCount() == -1) {
+                throw new SQLException("Expected a result set from the cart batch.");
+            }
+            isResultSet = statement.getMoreResults();
+        }
+        return statement.getResultSet();
+    }
 }
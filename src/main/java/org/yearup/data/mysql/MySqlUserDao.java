@@ -4,7 +4,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.yearup.data.UserDao;
 import org.yearup.models.User;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import javax.sql.DataSource;
 import java.sql.*;
@@ -13,19 +13,22 @@ import java.util.List;
 
 @Component
 public class MySqlUserDao extends MySqlDaoBase implements UserDao {
+    private final PasswordEncoder passwordEncoder;
+
     @Autowired
-    public MySqlUserDao(DataSource dataSource) {
+    public MySqlUserDao(DataSource dataSource, PasswordEncoder passwordEncoder) {
         super(dataSource);
+        this.passwordEncoder = passwordEncoder;
     }
 
 
     @Override
     public User create(User newUser) {
         String sql = "INSERT INTO users (username, hashed_password, role) VALUES (?, ?, ?)";
-        String hashedPassword = new BCryptPasswordEncoder().encode(newUser.getPassword());
+        String hashedPassword = passwordEncoder.encode(newUser.getPassword());
 
-        try (Connection connection = getConnection()) {
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, newUser.getUsername());
             ps.setString(2, hashedPassword);
             ps.setString(3, newUser.getRole());
@@ -58,11 +61,9 @@ public class MySqlUserDao extends MySqlDaoBase implements UserDao {
         List<User> users = new ArrayList<>();
 
         String sql = "SELECT * FROM users";
-        try (Connection connection = getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(sql);
-
-            ResultSet row = statement.executeQuery();
-
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet row = statement.executeQuery()) {
             while (row.next()) {
                 User user = mapRow(row);
                 users.add(user);
@@ -77,15 +78,15 @@ public class MySqlUserDao extends MySqlDaoBase implements UserDao {
     @Override
     public User getUserById(int id) {
         String sql = "SELECT * FROM users WHERE user_id = ?";
-        try (Connection connection = getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(sql);
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setInt(1, id);
 
-            ResultSet row = statement.executeQuery();
-
-            if (row.next()) {
-                User user = mapRow(row);
-                return user;
+            try (ResultSet row = statement.executeQuery()) {
+                if (row.next()) {
+                    User user = mapRow(row);
+                    return user;
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -99,15 +100,15 @@ public class MySqlUserDao extends MySqlDaoBase implements UserDao {
                 " FROM users " +
                 " WHERE username = ?";
 
-        try (Connection connection = getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(sql);
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setString(1, username);
 
-            ResultSet row = statement.executeQuery();
-            if (row.next()) {
-
-                User user = mapRow(row);
-                return user;
+            try (ResultSet row = statement.executeQuery()) {
+                if (row.next()) {
+                    User user = mapRow(row);
+                    return user;
+                }
             }
         } catch (SQLException e) {
             System.out.println(e);
@@ -133,6 +134,21 @@ public class MySqlUserDao extends MySqlDaoBase implements UserDao {
         return user != null;
     }
 
+    @Override
+    public void updatePassword(String username, String hashedPassword) {
+        String sql = "UPDATE users SET hashed_password = ? WHERE username = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, hashedPassword);
+            statement.setString(2, username);
+
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private User mapRow(ResultSet row) throws SQLException {
         int userId = row.getInt("user_id");
         String username = row.getString("username");
@@ -0,0 +1,132 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Second connection pool for a read replica of the database. MySqlDaoBase.getReadConnection sends
+ * read-only DAO methods here, writes keep using the primary DataSource.
+ *
+ * A replica lags behind the primary, so every write records its scope (the catalog, one product, or one
+ * user's cart and orders) and reads of that scope go to the primary for read-your-writes-ms afterwards. The window
+ * is kept per application instance. If the replica can't hand out a connection, reads fall back to the primary.
+ */
+@Component
+@ConditionalOnProperty(name = "easyshop.datasource.replica.url")
+public class ReadReplicaRouting {
+    private static final Logger LOG = LoggerFactory.getLogger(ReadReplicaRouting.class);
+
+    private final DataSource replica;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+
+    // scope -> System.nanoTime() until which its reads stay on the primary
+    private final ConcurrentHashMap<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    @Autowired
+    public ReadReplicaRouting(@Value("${easyshop.datasource.replica.url}") String url,
+                              @Value("${easyshop.datasource.replica.username:${spring.datasource.username:}}") String username,
+                              @Value("${easyshop.datasource.replica.password:${spring.datasource.password:}}") String password,
+                              @Value("${easyshop.datasource.replica.max-total:20}") int maxTotal,
+                              @Value("${spring.datasource.dbcp2.max-wait-millis:5000}") long maxWaitMillis,
+                              @Value("${easyshop.datasource.replica.read-your-writes-ms:5000}") long windowMillis) {
+        this(replicaPool(url, username, password, maxTotal, maxWaitMillis), windowMillis, System::nanoTime);
+    }
+
+    public ReadReplicaRouting(DataSource replica, long windowMillis, LongSupplier nanoClock) {
+        this.replica = replica;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.nanoClock = nanoClock;
+    }
+
+    void recordWrite(String scope) {
+        pinnedUntil.put(scope, nanoClock.getAsLong() + windowNanos);
+    }
+
+    // null means: read from the primary
+    Connection getReadConnection(String... scopes) {
+        for (String scope : scopes) {
+            if (isPinned(scope)) {
+                primaryReads.increment();
+                return null;
+            }
+        }
+
+        try {
+            Connection connection = replica.getConnection();
+            replicaReads.increment();
+            return connection;
+        } catch (SQLException e) {
+            fallbacks.increment();
+            LOG.warn("Could not borrow a read replica connection, reading from the primary: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${easyshop.datasource.replica.read-your-writes-ms:5000}")
+    public void evictExpired() {
+        long now = nanoClock.getAsLong();
+        pinnedUntil.entrySet().removeIf(entry -> entry.getValue() - now <= 0);
+    }
+
+    @PreDestroy
+    public void close() throws SQLException {
+        if (replica instanceof BasicDataSource) {
+            ((BasicDataSource) replica).close();
+        }
+    }
+
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    public long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    public int getPinnedScopes() {
+        return pinnedUntil.size();
+    }
+
+    private boolean isPinned(String scope) {
+        Long until = pinnedUntil.get(scope);
+        return until != null && until - nanoClock.getAsLong() > 0;
+    }
+
+    private static BasicDataSource replicaPool(String url, String username, String password, int maxTotal, long maxWaitMillis) {
+        BasicDataSource pool = new BasicDataSource();
+        pool.setUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaxTotal(maxTotal);
+        pool.setMaxIdle(maxTotal);
+        pool.setMaxWaitMillis(maxWaitMillis);
+        pool.setTestOnBorrow(true);
+        pool.setPoolPreparedStatements(true);
+        pool.setMaxOpenPreparedStatements(100);
+        return pool;
+    }
+}
@@ -0,0 +1,103 @@
+package org.yearup.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.yearup.models.ShoppingCart;
+
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * Times every public method of the MySql*Dao classes and records how many rows it returned.
+ * Failures are counted by the SQLState of the underlying SQLException, so connection problems
+ * (08xxx) can be told apart from constraint violations (23xxx) and timeouts.
+ *
+ * easyshop.dao         timer, tags dao, method, outcome
+ * easyshop.dao.rows    distribution summary of rows returned, tags dao, method
+ * easyshop.dao.errors  counter, tags dao, method, sqlstate
+ */
+@Aspect
+@Component
+public class DaoMetricsAspect {
+    private final MeterRegistry registry;
+
+    public DaoMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * org.yearup.data.mysql.MySql*Dao.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        String dao = ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName();
+        String method = joinPoint.getSignature().getName();
+
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            Object result = joinPoint.proceed();
+
+            sample.stop(timer(dao, method, "success"));
+            if (((MethodSignature) joinPoint.getSignature()).getReturnType() != void.class) {
+                recordRows(dao, method, result);
+            }
+            return result;
+        } catch (Throwable e) {
+            sample.stop(timer(dao, method, "error"));
+            Counter.builder("easyshop.dao.errors")
+                    .tag("dao", dao)
+                    .tag("method", method)
+                    .tag("sqlstate", sqlState(e))
+                    .register(registry)
+                    .increment();
+            throw e;
+        }
+    }
+
+    private Timer timer(String dao, String method, String outcome) {
+        return Timer.builder("easyshop.dao")
+                .description("Latency of DAO calls")
+                .tag("dao", dao)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private void recordRows(String dao, String method, Object result) {
+        int rows;
+        if (result instanceof Collection<?> collection) {
+            rows = collection.size();
+        } else if (result instanceof ShoppingCart cart) {
+            rows = cart.getItems().size();
+        } else if (result instanceof Boolean || result instanceof Number) {
+            // counts and existence checks don't map onto rows
+            return;
+        } else if (result != null) {
+            rows = 1;
+        } else {
+            rows = 0;
+        }
+
+        DistributionSummary.builder("easyshop.dao.rows")
+                .description("Rows returned by DAO calls")
+                .tag("dao", dao)
+                .tag("method", method)
+                .register(registry)
+                .record(rows);
+    }
+
+    // the DAOs wrap SQLExceptions in RuntimeExceptions, so walk the cause chain
+    static String sqlState(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                return sqlException.getSQLState();
+            }
+        }
+        return "none";
+    }
+}
@@ -0,0 +1,108 @@
+package org.yearup.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.yearup.data.cache.CachingProductDao;
+import org.yearup.data.cache.CachingUserDao;
+import org.yearup.data.cache.ExpiringLruCache;
+import org.yearup.data.mysql.ConnectionPoolMetrics;
+import org.yearup.data.mysql.JdbcConcurrencyLimiter;
+import org.yearup.data.mysql.ReadReplicaRouting;
+
+/**
+ * Publishes the in-process cache statistics and the connection pool statistics to Micrometer,
+ * so they show up next to the request and DAO timings on /actuator/prometheus.
+ */
+@Component
+public class EasyShopMetrics implements MeterBinder {
+    private final CachingProductDao productDao;
+    private final CachingUserDao userDao;
+    private final ConnectionPoolMetrics pool;
+    private final ObjectProvider<JdbcConcurrencyLimiter> concurrencyLimiter;
+    private final ObjectProvider<ReadReplicaRouting> readReplica;
+
+    public EasyShopMetrics(CachingProductDao productDao, CachingUserDao userDao, ConnectionPoolMetrics pool,
+                           ObjectProvider<JdbcConcurrencyLimiter> concurrencyLimiter,
+                           ObjectProvider<ReadReplicaRouting> readReplica) {
+        this.productDao = productDao;
+        this.userDao = userDao;
+        this.pool = pool;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.readReplica = readReplica;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindCache(registry, "products", productDao.getProductCache());
+        bindCache(registry, "products-by-category", productDao.getCategoryCache());
+        bindCache(registry, "users", userDao.getCache());
+
+        Gauge.builder("easyshop.db.pool.active", pool, ConnectionPoolMetrics::getActive)
+                .description("Connections currently borrowed from the pool")
+                .register(registry);
+        Gauge.builder("easyshop.db.pool.idle", pool, ConnectionPoolMetrics::getIdle)
+                .description("Idle connections in the pool")
+                .register(registry);
+        Gauge.builder("easyshop.db.pool.max", pool, ConnectionPoolMetrics::getMaxTotal)
+                .register(registry);
+        Gauge.builder("easyshop.db.pool.wait.mean", pool, ConnectionPoolMetrics::getMeanWaitMillis)
+                .description("Mean time spent waiting to borrow a connection")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("easyshop.db.pool.wait.max", pool, ConnectionPoolMetrics::getMaxWaitMillis)
+                .description("Longest time spent waiting to borrow a connection")
+                .baseUnit("milliseconds")
+                .register(registry);
+        FunctionCounter.builder("easyshop.db.pool.borrow.failures", pool, ConnectionPoolMetrics::getBorrowFailures)
+                .register(registry);
+
+        // only in virtual-thread mode
+        concurrencyLimiter.ifAvailable(limiter -> {
+            Gauge.builder("easyshop.db.limiter.available", limiter, JdbcConcurrencyLimiter::getAvailablePermits)
+                    .description("Connections that can be borrowed without waiting")
+                    .register(registry);
+            Gauge.builder("easyshop.db.limiter.waiting", limiter, JdbcConcurrencyLimiter::getQueueLength)
+                    .description("Threads waiting for a database connection")
+                    .register(registry);
+        });
+
+        // only when a read replica is configured
+        readReplica.ifAvailable(routing -> {
+            FunctionCounter.builder("easyshop.db.reads", routing, ReadReplicaRouting::getReplicaReads)
+                    .description("Read-only queries by the database they ran on")
+                    .tag("target", "replica")
+                    .register(registry);
+            FunctionCounter.builder("easyshop.db.reads", routing, ReadReplicaRouting::getPrimaryReads)
+                    .description("Read-only queries by the database they ran on")
+                    .tag("target", "primary")
+                    .register(registry);
+            FunctionCounter.builder("easyshop.db.replica.fallbacks", routing, ReadReplicaRouting::getFallbacks)
+                    .description("Reads sent to the primary because the replica had no connection to give")
+                    .register(registry);
+            Gauge.builder("easyshop.db.replica.pinned", routing, ReadReplicaRouting::getPinnedScopes)
+                    .description("Users and catalogs currently inside their read-your-writes window")
+                    .register(registry);
+        });
+    }
+
+    private static void bindCache(MeterRegistry registry, String name, ExpiringLruCache<?, ?> cache) {
+        Gauge.builder("easyshop.cache.size", cache, ExpiringLruCache::size)
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("easyshop.cache.requests", cache, ExpiringLruCache::getHitCount)
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("easyshop.cache.requests", cache, ExpiringLruCache::getMissCount)
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("easyshop.cache.evictions", cache, ExpiringLruCache::getEvictionCount)
+                .tag("cache", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,60 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+// What a cart change did: the changed line with its new quantity and line total, and the new cart total.
+// Returned instead of the whole cart; clearing the cart has no single line, so productId is null.
+public class CartDelta {
+    private static final BigDecimal ZERO = BigDecimal.valueOf(0, 2);
+
+    private Integer productId;
+    private int quantity;
+    private BigDecimal lineTotal;
+    private BigDecimal total;
+
+    public CartDelta() {
+    }
+
+    public CartDelta(Integer productId, int quantity, BigDecimal lineTotal, BigDecimal total) {
+        this.productId = productId;
+        this.quantity = quantity;
+        this.lineTotal = lineTotal;
+        this.total = total;
+    }
+
+    public static CartDelta cleared() {
+        return new CartDelta(null, 0, ZERO, ZERO);
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getLineTotal() {
+        return lineTotal;
+    }
+
+    public void setLineTotal(BigDecimal lineTotal) {
+        this.lineTotal = lineTotal;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+}
@@ -1,9 +1,15 @@
 package org.yearup.models;
 
+import java.math.BigDecimal;
+
 public class Category {
     private int categoryId;
     private String name;
     private String description;
+    // filled in by the category snapshot, empty for a category without products
+    private int productCount;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
 
     public Category() {
     }
@@ -37,4 +43,28 @@ public class Category {
     public void setDescription(String description) {
         this.description = description;
     }
+
+    public int getProductCount() {
+        return productCount;
+    }
+
+    public void setProductCount(int productCount) {
+        this.productCount = productCount;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPrice = maxPrice;
+    }
 }
@@ -0,0 +1,36 @@
+package org.yearup.models;
+
+import java.util.List;
+
+/**
+ * One page of a customer's order history, newest first. Holds either full orders or summaries.
+ * nextToken is passed back as the token parameter to fetch older orders, and is null on the last page.
+ */
+public class OrderPage<T> {
+    private List<T> orders;
+    private String nextToken;
+
+    public OrderPage() {
+    }
+
+    public OrderPage(List<T> orders, String nextToken) {
+        this.orders = orders;
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getOrders() {
+        return orders;
+    }
+
+    public void setOrders(List<T> orders) {
+        this.orders = orders;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public void setNextToken(String nextToken) {
+        this.nextToken = nextToken;
+    }
+}
@@ -0,0 +1,78 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Compact view of an order for list pages: totals only, no line items or address
+public class OrderSummary {
+    private int orderId;
+    private LocalDate date;
+    private int lineCount;
+    private int itemCount;
+    private BigDecimal subtotal;
+    private BigDecimal shippingAmount;
+
+    public OrderSummary() {
+    }
+
+    public OrderSummary(int orderId, LocalDate date, int lineCount, int itemCount, BigDecimal subtotal, BigDecimal shippingAmount) {
+        this.orderId = orderId;
+        this.date = date;
+        this.lineCount = lineCount;
+        this.itemCount = itemCount;
+        this.subtotal = subtotal;
+        this.shippingAmount = shippingAmount;
+    }
+
+    public int getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(int orderId) {
+        this.orderId = orderId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public void setLineCount(int lineCount) {
+        this.lineCount = lineCount;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public BigDecimal getSubtotal() {
+        return subtotal;
+    }
+
+    public void setSubtotal(BigDecimal subtotal) {
+        this.subtotal = subtotal;
+    }
+
+    public BigDecimal getShippingAmount() {
+        return shippingAmount;
+    }
+
+    public void setShippingAmount(BigDecimal shippingAmount) {
+        this.shippingAmount = shippingAmount;
+    }
+
+    public BigDecimal getTotal() {
+        return subtotal.add(shippingAmount);
+    }
+}
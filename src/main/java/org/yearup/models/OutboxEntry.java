@@ -0,0 +1,61 @@
+package org.yearup.models;
+
+// One row of the order outbox: the follow-up work of a placed order and how far it got
+public class OutboxEntry {
+    private int outboxId;
+    private int orderId;
+    private int userId;
+    private int stageIndex;
+    private int attempts;
+
+    public OutboxEntry() {
+    }
+
+    public OutboxEntry(int outboxId, int orderId, int userId, int stageIndex, int attempts) {
+        this.outboxId = outboxId;
+        this.orderId = orderId;
+        this.userId = userId;
+        this.stageIndex = stageIndex;
+        this.attempts = attempts;
+    }
+
+    public int getOutboxId() {
+        return outboxId;
+    }
+
+    public void setOutboxId(int outboxId) {
+        this.outboxId = outboxId;
+    }
+
+    public int getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(int orderId) {
+        this.orderId = orderId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public int getStageIndex() {
+        return stageIndex;
+    }
+
+    public void setStageIndex(int stageIndex) {
+        this.stageIndex = stageIndex;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+}
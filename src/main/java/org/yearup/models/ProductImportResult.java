@@ -0,0 +1,20 @@
+package org.yearup.models;
+
+public class ProductImportResult {
+    private int imported;
+
+    public ProductImportResult() {
+    }
+
+    public ProductImportResult(int imported) {
+        this.imported = imported;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public void setImported(int imported) {
+        this.imported = imported;
+    }
+}
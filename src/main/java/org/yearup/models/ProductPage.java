@@ -0,0 +1,36 @@
+package org.yearup.models;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated product search. nextToken is passed back as the token
+ * parameter to fetch the following page, and is null on the last page.
+ */
+public class ProductPage {
+    private List<Product> products;
+    private String nextToken;
+
+    public ProductPage() {
+    }
+
+    public ProductPage(List<Product> products, String nextToken) {
+        this.products = products;
+        this.nextToken = nextToken;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public void setNextToken(String nextToken) {
+        this.nextToken = nextToken;
+    }
+}
@@ -0,0 +1,68 @@
+package org.yearup.models;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a keyword search: the best matching products plus facet counts over all matches,
+ * so the storefront can show how many results each category, colour and price range holds.
+ */
+public class ProductSearchResult {
+    private List<Product> products;
+    private int total;
+    private Map<Integer, Integer> categories;
+    private Map<String, Integer> colors;
+    private Map<String, Integer> prices;
+
+    public ProductSearchResult() {
+    }
+
+    public ProductSearchResult(List<Product> products, int total, Map<Integer, Integer> categories,
+                               Map<String, Integer> colors, Map<String, Integer> prices) {
+        this.products = products;
+        this.total = total;
+        this.categories = categories;
+        this.colors = colors;
+        this.prices = prices;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public Map<Integer, Integer> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Map<Integer, Integer> categories) {
+        this.categories = categories;
+    }
+
+    public Map<String, Integer> getColors() {
+        return colors;
+    }
+
+    public void setColors(Map<String, Integer> colors) {
+        this.colors = colors;
+    }
+
+    public Map<String, Integer> getPrices() {
+        return prices;
+    }
+
+    public void setPrices(Map<String, Integer> prices) {
+        this.prices = prices;
+    }
+}
@@ -1,18 +1,33 @@
 package org.yearup.models;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 public class ShoppingCart {
-    private Map<Integer, ShoppingCartItem> items = new HashMap<>();
+    private final Map<Integer, ShoppingCartItem> items = new HashMap<>();
+    // callers get a read-only view so every change goes through add and keeps the subtotal right
+    private final Map<Integer, ShoppingCartItem> itemsView = Collections.unmodifiableMap(items);
+
+    // running subtotal in cents, kept up to date by add and by the items themselves
+    private long totalCents;
+    // lines with sub-cent prices; while there are any, getTotal sums the BigDecimal line totals instead
+    private int inexactLines;
+    private BigDecimal total;
 
     public Map<Integer, ShoppingCartItem> getItems() {
-        return items;
+        return itemsView;
     }
 
     public void setItems(Map<Integer, ShoppingCartItem> items) {
-        this.items = items;
+        this.items.values().forEach(item -> item.setCart(null));
+        this.items.clear();
+        totalCents = 0;
+        inexactLines = 0;
+        total = null;
+
+        items.values().forEach(this::add);
     }
 
     public boolean contains(int productId) {
@@ -20,7 +35,14 @@ public class ShoppingCart {
     }
 
     public void add(ShoppingCartItem item) {
-        items.put(item.getProductId(), item);
+        ShoppingCartItem previous = items.put(item.getProductId(), item);
+        if (previous != null) {
+            previous.setCart(null);
+            lineChanged(previous.getLineTotalCents(), 0);
+        }
+
+        item.setCart(this);
+        lineChanged(0, item.getLineTotalCents());
     }
 
     public ShoppingCartItem get(int productId) {
@@ -28,12 +50,28 @@ public class ShoppingCart {
     }
 
     public BigDecimal getTotal() {
-        BigDecimal total = items.values()
-                .stream()
-                .map(i -> i.getLineTotal())
-                .reduce(BigDecimal.ZERO, (lineTotal, subTotal) -> subTotal.add(lineTotal));
-
+        if (total == null) {
+            total = inexactLines == 0
+                    ? BigDecimal.valueOf(totalCents, 2)
+                    : items.values().stream()
+                            .map(ShoppingCartItem::getLineTotal)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
         return total;
     }
 
+    void lineChanged(long removedCents, long addedCents) {
+        if (removedCents == ShoppingCartItem.NOT_IN_CENTS) {
+            inexactLines--;
+        } else {
+            totalCents -= removedCents;
+        }
+
+        if (addedCents == ShoppingCartItem.NOT_IN_CENTS) {
+            inexactLines++;
+        } else {
+            totalCents += addedCents;
+        }
+        total = null;
+    }
 }
@@ -5,12 +5,23 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.math.BigDecimal;
 
 public class ShoppingCartItem {
+    // marks a line whose price has sub-cent digits, which has to take the BigDecimal path
+    static final long NOT_IN_CENTS = Long.MIN_VALUE;
+
     private Product product = null;
     private int quantity = 1;
 
+    // line arithmetic is done in whole cents; the BigDecimal is only built when asked for and then kept
+    private long lineTotalCents;
+    private BigDecimal lineTotal;
+
+    // the cart this item belongs to, told whenever the line total changes
+    private ShoppingCart cart;
+
     public ShoppingCartItem(Product product, int quantity) {
         this.product = product;
         this.quantity = quantity;
+        recalculate();
     }
 
     public Product getProduct() {
@@ -19,6 +30,7 @@ public class ShoppingCartItem {
 
     public void setProduct(Product product) {
         this.product = product;
+        recalculate();
     }
 
     public int getQuantity() {
@@ -27,6 +39,7 @@ public class ShoppingCartItem {
 
     public void setQuantity(int quantity) {
         this.quantity = quantity;
+        recalculate();
     }
 
     @JsonIgnore
@@ -35,10 +48,43 @@ public class ShoppingCartItem {
     }
 
     public BigDecimal getLineTotal() {
-        BigDecimal basePrice = product.getPrice();
-        BigDecimal quantity = new BigDecimal(this.quantity);
+        if (lineTotal == null) {
+            lineTotal = lineTotalCents == NOT_IN_CENTS
+                    ? product.getPrice().multiply(BigDecimal.valueOf(quantity))
+                    : BigDecimal.valueOf(lineTotalCents, 2);
+        }
+        return lineTotal;
+    }
+
+    long getLineTotalCents() {
+        return lineTotalCents;
+    }
+
+    void setCart(ShoppingCart cart) {
+        this.cart = cart;
+    }
+
+    private void recalculate() {
+        long previous = lineTotalCents;
+        lineTotalCents = lineTotalCents(product, quantity);
+        lineTotal = null;
+
+        if (cart != null) {
+            cart.lineChanged(previous, lineTotalCents);
+        }
+    }
+
+    private static long lineTotalCents(Product product, int quantity) {
+        if (product == null || product.getPrice() == null) {
+            return NOT_IN_CENTS;
+        }
 
-        BigDecimal subTotal = basePrice.multiply(quantity);
-        return subTotal;
+        try {
+            // throws when the price has sub-cent digits or the line does not fit in a long
+            long priceCents = product.getPrice().movePointRight(2).longValueExact();
+            return Math.multiplyExact(priceCents, quantity);
+        } catch (ArithmeticException e) {
+            return NOT_IN_CENTS;
+        }
     }
 }
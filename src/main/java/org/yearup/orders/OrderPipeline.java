@@ -0,0 +1,191 @@
+package org.yearup.orders;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.yearup.data.OrderOutboxDao;
+import org.yearup.data.events.OrderPlacedEvent;
+import org.yearup.models.OutboxEntry;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Runs the work that follows a checkout off the request thread. Checkout only commits the order
+ * together with a row in the order outbox; this pipeline then runs the OrderStages for that order
+ * on a small pool of workers fed by a bounded queue.
+ *
+ * A failing stage is retried with exponential backoff and marked FAILED after max-attempts.
+ * Nothing is lost when the queue is full or the process restarts: the outbox is scanned
+ * periodically and every pending order that is due gets dispatched again.
+ *
+ * Several instances can share the outbox. An order is only processed after its outbox row has been
+ * claimed for claim-ms, so two instances never run the same order at once; the claim of an instance
+ * that dies runs out and the order is taken over. Stages still have to tolerate running again after
+ * such a takeover, since the dead instance may have finished a stage without recording it.
+ */
+@Component
+public class OrderPipeline {
+    private static final Logger LOG = LoggerFactory.getLogger(OrderPipeline.class);
+
+    private final OrderOutboxDao outboxDao;
+    private final List<OrderStage> stages;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final int queueCapacity;
+    private final long claimMillis;
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retries;
+    // orders that are queued or running here, so the outbox scan doesn't queue them a second time;
+    // other instances are kept out by the claim on the outbox row
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final MeterRegistry registry;
+    private final Counter rejected;
+
+    public OrderPipeline(OrderOutboxDao outboxDao, List<OrderStage> stages, MeterRegistry registry,
+                         @Value("${easyshop.orders.pipeline.workers:4}") int workerCount,
+                         @Value("${easyshop.orders.pipeline.queue-capacity:1000}") int queueCapacity,
+                         @Value("${easyshop.orders.pipeline.max-attempts:5}") int maxAttempts,
+                         @Value("${easyshop.orders.pipeline.retry-delay-ms:1000}") long retryDelayMillis,
+                         @Value("${easyshop.orders.pipeline.claim-ms:300000}") long claimMillis) {
+        this.outboxDao = outboxDao;
+        this.stages = List.copyOf(stages);
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelayMillis;
+        this.queueCapacity = queueCapacity;
+        this.claimMillis = claimMillis;
+
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("order-pipeline-"));
+        this.retries = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("order-pipeline-retry-"));
+
+        this.registry = registry;
+        this.rejected = Counter.builder("easyshop.orders.pipeline.rejected")
+                .description("Orders not queued because the queue was full, the outbox scan picks them up later")
+                .register(registry);
+        Gauge.builder("easyshop.orders.pipeline.queue", workers, executor -> executor.getQueue().size())
+                .description("Orders waiting for a pipeline worker")
+                .register(registry);
+        Gauge.builder("easyshop.orders.pipeline.active", workers, ThreadPoolExecutor::getActiveCount)
+                .description("Pipeline workers currently running a stage")
+                .register(registry);
+    }
+
+    @EventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        dispatch(event.getOrderId());
+    }
+
+    // safety net for orders whose dispatch was rejected, whose retry was lost in a restart,
+    // or whose claim ran out on an instance that died
+    @Scheduled(fixedDelayString = "${easyshop.orders.pipeline.scan-interval-ms:30000}",
+            initialDelayString = "${easyshop.orders.pipeline.scan-interval-ms:30000}")
+    public void scanOutbox() {
+        try {
+            for (OutboxEntry entry : outboxDao.getDue(Instant.now(), queueCapacity)) {
+                dispatch(entry.getOrderId());
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Could not scan the order outbox", e);
+        }
+    }
+
+    public void dispatch(int orderId) {
+        if (!inFlight.add(orderId)) {
+            return;
+        }
+
+        try {
+            workers.execute(() -> {
+                try {
+                    process(orderId);
+                } catch (RuntimeException e) {
+                    // the entry is still pending, an outbox scan tries again once the claim has run out
+                    LOG.warn("Could not process order {}", orderId, e);
+                } finally {
+                    inFlight.remove(orderId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(orderId);
+            rejected.increment();
+        }
+    }
+
+    // runs the remaining stages of one order in sequence and stops at the first one that fails
+    void process(int orderId) {
+        Instant now = Instant.now();
+        OutboxEntry entry = outboxDao.claim(orderId, now, now.plusMillis(claimMillis));
+        if (entry == null) {
+            return;
+        }
+
+        for (int index = entry.getStageIndex(); index < stages.size(); index++) {
+            OrderStage stage = stages.get(index);
+            long start = System.nanoTime();
+
+            try {
+                stage.process(entry);
+            } catch (RuntimeException e) {
+                record(stage, start, fail(entry, stage, e));
+                return;
+            }
+
+            record(stage, start, "success");
+            if (index + 1 < stages.size()) {
+                outboxDao.markStageCompleted(entry.getOutboxId(), index + 1);
+                entry.setStageIndex(index + 1);
+                entry.setAttempts(0);
+            }
+        }
+        outboxDao.markDone(entry.getOutboxId());
+    }
+
+    private String fail(OutboxEntry entry, OrderStage stage, RuntimeException error) {
+        int attempts = entry.getAttempts() + 1;
+        String message = stage.getName() + ": " + error;
+
+        if (attempts >= maxAttempts) {
+            LOG.error("Order {} failed stage {} after {} attempts", entry.getOrderId(), stage.getName(), attempts, error);
+            outboxDao.markFailed(entry.getOutboxId(), attempts, message);
+            return "failed";
+        }
+
+        // 1x, 2x, 4x, ... the retry delay
+        long delay = retryDelayMillis << (attempts - 1);
+        LOG.warn("Order {} failed stage {} (attempt {}), retrying in {} ms", entry.getOrderId(), stage.getName(), attempts, delay);
+        outboxDao.markRetry(entry.getOutboxId(), attempts, Instant.now().plusMillis(delay), message);
+        retries.schedule(() -> dispatch(entry.getOrderId()), delay, TimeUnit.MILLISECONDS);
+        return "retry";
+    }
+
+    private void record(OrderStage stage, long start, String outcome) {
+        Timer.builder("easyshop.orders.stage")
+                .description("Time spent in one stage of the order pipeline")
+                .tag("stage", stage.getName())
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        retries.shutdownNow();
+        workers.shutdown();
+        // whatever doesn't finish in time stays pending in the outbox
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,13 @@
+package org.yearup.orders;
+
+import org.yearup.models.OutboxEntry;
+
+/**
+ * One step of the work that follows a checkout. Stages run in @Order order on the pipeline's worker
+ * threads; a stage that throws is retried later, so every stage has to be safe to run more than once.
+ */
+public interface OrderStage {
+    String getName();
+
+    void process(OutboxEntry entry);
+}
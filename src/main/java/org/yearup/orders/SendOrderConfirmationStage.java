@@ -0,0 +1,24 @@
+package org.yearup.orders;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yearup.models.OutboxEntry;
+
+// hook for the order confirmation; there is no mail service yet, so the confirmation is only logged
+@Component
+@Order(1)
+public class SendOrderConfirmationStage implements OrderStage {
+    private static final Logger LOG = LoggerFactory.getLogger(SendOrderConfirmationStage.class);
+
+    @Override
+    public String getName() {
+        return "send-order-confirmation";
+    }
+
+    @Override
+    public void process(OutboxEntry entry) {
+        LOG.info("Order {} confirmed for user {}", entry.getOrderId(), entry.getUserId());
+    }
+}
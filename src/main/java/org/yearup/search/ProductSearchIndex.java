@@ -0,0 +1,316 @@
+package org.yearup.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductDao;
+import org.yearup.data.events.ProductsChangedEvent;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+import org.yearup.models.ProductSearchResult;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the name, description and colour of every product.
+ * It is built when the application starts and kept in sync through ProductsChangedEvent,
+ * so keyword searches and facet counts never touch the database. Changed ids are only queued by
+ * the event, so the writer (checkout, admin edits) doesn't wait for the re-read; refresh picks
+ * them up in batches. If the first build fails, refresh keeps retrying it, and until one succeeds
+ * isBuilt() is false so callers can tell an empty index from an empty result.
+ */
+@Component
+public class ProductSearchIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // a match in the name counts more than a match in the colour, which counts more than the description
+    private static final int NAME_WEIGHT = 3;
+    private static final int COLOR_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final BigDecimal[] PRICE_BOUNDS = {
+            new BigDecimal("25"), new BigDecimal("50"), new BigDecimal("100"), new BigDecimal("250"), new BigDecimal("500")
+    };
+
+    private final ProductDao productDao;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // one build or refresh at a time, so a refresh can't be overwritten by an older build
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean built;
+
+    private Map<Integer, Product> products = new HashMap<>();
+    // token -> (product id -> weight of the token in that product)
+    private Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+
+    public ProductSearchIndex(MySqlProductDao productDao) {
+        this.productDao = productDao;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        Map<Integer, Product> newProducts = new HashMap<>();
+        Map<String, Map<Integer, Integer>> newPostings = new HashMap<>();
+
+        refreshLock.lock();
+        try {
+            try {
+                productDao.streamSearch(null, null, null, null, product -> {
+                    newProducts.put(product.getProductId(), product);
+                    addPostings(newPostings, product);
+                });
+            } catch (RuntimeException e) {
+                LOG.warn("Could not build the product search index, retrying on the next refresh", e);
+                return;
+            }
+
+            lock.writeLock().lock();
+            try {
+                products = newProducts;
+                postings = newPostings;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            built = true;
+            LOG.info("Product search index built with {} products and {} terms", newProducts.size(), newPostings.size());
+        } finally {
+            refreshLock.unlock();
+        }
+
+        // rows changed while the build was reading may be in it with their old values
+        refresh();
+    }
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        pending.addAll(event.getProductIds());
+    }
+
+    // re-reads the queued rows straight from the database; ids that no longer exist were deleted.
+    // Until a build has succeeded, it retries the build instead, which reads every row anyway
+    @Scheduled(fixedDelayString = "${easyshop.search.refresh-interval-ms:1000}")
+    public void refresh() {
+        if (!built) {
+            build();
+            return;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // a running build calls refresh when it is done; don't hold up the shared scheduler thread meanwhile
+        if (!refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Integer> productIds = new ArrayList<>(pending);
+            productIds.forEach(pending::remove);
+
+            Map<Integer, Product> current = new HashMap<>();
+            try {
+                for (Product product : productDao.getByIds(productIds)) {
+                    current.put(product.getProductId(), product);
+                }
+            } catch (RuntimeException e) {
+                pending.addAll(productIds);
+                LOG.warn("Could not refresh {} products in the search index, retrying on the next run", productIds.size(), e);
+                return;
+            }
+
+            apply(productIds, current);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private void apply(List<Integer> productIds, Map<Integer, Product> current) {
+        lock.writeLock().lock();
+        try {
+            for (Integer productId : productIds) {
+                removeLocked(productId);
+                Product product = current.get(productId);
+                if (product != null) {
+                    products.put(productId, product);
+                    addPostings(postings, product);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the products that contain every word of the query, best matches first. An empty query
+     * matches every product, which turns this into faceted browsing. Facets are counted over all
+     * matches, not just the returned page.
+     */
+    public ProductSearchResult search(String query, Integer categoryId, String color,
+                                      BigDecimal minPrice, BigDecimal maxPrice, int limit) {
+        List<String> terms = tokenize(query);
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> scores = match(terms);
+
+            List<Product> matches = new ArrayList<>();
+            Map<Integer, Integer> categoryFacets = new TreeMap<>();
+            Map<String, Integer> colorFacets = new TreeMap<>();
+            Map<String, Integer> priceFacets = emptyPriceFacets();
+
+            for (Integer productId : scores.keySet()) {
+                Product product = products.get(productId);
+                if (!matchesFilters(product, categoryId, color, minPrice, maxPrice)) {
+                    continue;
+                }
+
+                matches.add(product);
+                categoryFacets.merge(product.getCategoryId(), 1, Integer::sum);
+                if (product.getColor() != null) {
+                    colorFacets.merge(product.getColor(), 1, Integer::sum);
+                }
+                priceFacets.merge(priceBucket(product.getPrice()), 1, Integer::sum);
+            }
+
+            matches.sort(Comparator.<Product>comparingInt(p -> scores.get(p.getProductId())).reversed()
+                    .thenComparingInt(Product::getProductId));
+
+            List<Product> page = new ArrayList<>(matches.subList(0, Math.min(limit, matches.size())));
+            return new ProductSearchResult(page, matches.size(), categoryFacets, colorFacets, priceFacets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // product id -> summed weight of the query terms, only for products that contain every term
+    private Map<Integer, Integer> match(List<String> terms) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        if (terms.isEmpty()) {
+            products.keySet().forEach(productId -> scores.put(productId, 0));
+            return scores;
+        }
+
+        // start from the rarest term so the intersection stays as small as possible
+        List<Map<Integer, Integer>> termPostings = new ArrayList<>();
+        for (String term : terms) {
+            Map<Integer, Integer> posting = postings.get(term);
+            if (posting == null) {
+                return scores;
+            }
+            termPostings.add(posting);
+        }
+        termPostings.sort(Comparator.comparingInt(Map::size));
+
+        scores.putAll(termPostings.get(0));
+        for (int i = 1; i < termPostings.size() && !scores.isEmpty(); i++) {
+            Map<Integer, Integer> posting = termPostings.get(i);
+            scores.keySet().retainAll(posting.keySet());
+            scores.replaceAll((productId, score) -> score + posting.get(productId));
+        }
+        return scores;
+    }
+
+    private void removeLocked(int productId) {
+        Product existing = products.remove(productId);
+        if (existing == null) {
+            return;
+        }
+
+        for (String term : termWeights(existing).keySet()) {
+            Map<Integer, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addPostings(Map<String, Map<Integer, Integer>> postings, Product product) {
+        termWeights(product).forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(product.getProductId(), weight));
+    }
+
+    private static Map<String, Integer> termWeights(Product product) {
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(product.getName()).forEach(term -> weights.merge(term, NAME_WEIGHT, Integer::sum));
+        tokenize(product.getColor()).forEach(term -> weights.merge(term, COLOR_WEIGHT, Integer::sum));
+        tokenize(product.getDescription()).forEach(term -> weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+        return weights;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+
+        for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static boolean matchesFilters(Product product, Integer categoryId, String color,
+                                          BigDecimal minPrice, BigDecimal maxPrice) {
+        if (categoryId != null && product.getCategoryId() != categoryId) {
+            return false;
+        }
+        if (color != null && !color.isEmpty() && !color.equalsIgnoreCase(product.getColor())) {
+            return false;
+        }
+        if (minPrice != null && product.getPrice().compareTo(minPrice) < 0) {
+            return false;
+        }
+        return maxPrice == null || product.getPrice().compareTo(maxPrice) <= 0;
+    }
+
+    private static Map<String, Integer> emptyPriceFacets() {
+        Map<String, Integer> facets = new LinkedHashMap<>();
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal upper : PRICE_BOUNDS) {
+            facets.put(lower.toPlainString() + "-" + upper.toPlainString(), 0);
+            lower = upper;
+        }
+        facets.put(lower.toPlainString() + "+", 0);
+        return facets;
+    }
+
+    private static String priceBucket(BigDecimal price) {
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal upper : PRICE_BOUNDS) {
+            if (price.compareTo(upper) < 0) {
+                return lower.toPlainString() + "-" + upper.toPlainString();
+            }
+            lower = upper;
+        }
+        return lower.toPlainString() + "+";
+    }
+}
@@ -0,0 +1,133 @@
+package org.yearup.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt password encoder that does its hashing on a small, dedicated pool of threads fed by a bounded
+ * queue. A burst of logins or registrations can then use at most that many cores, and the cart and
+ * catalog endpoints keep theirs. When the queue is full, or a hash doesn't finish within the timeout,
+ * the caller gets a PasswordHashingBusyException instead of waiting behind everyone else.
+ *
+ * upgradeEncoding reports hashes made with a different cost than the configured one, so Spring Security
+ * rehashes the password on the next successful login (see UserModelDetailsService.updatePassword).
+ *
+ * Its meters are bound through MeterBinder rather than taking the registry in the constructor, because
+ * the registry's own binders depend on the user DAO, which depends on this encoder.
+ */
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder, MeterBinder {
+    // $2a$10$... the two digits after the version are the cost
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final int strength;
+    private final long timeoutMillis;
+
+    private final ThreadPoolExecutor workers;
+    private final AtomicLong rejected = new AtomicLong();
+    // null until the meters are bound
+    private volatile Timer encodeTimer;
+    private volatile Timer matchesTimer;
+
+    public BoundedPasswordEncoder(@Value("${easyshop.security.bcrypt.strength:10}") int strength,
+                                  @Value("${easyshop.security.hashing.threads:2}") int threads,
+                                  @Value("${easyshop.security.hashing.queue-capacity:100}") int queueCapacity,
+                                  @Value("${easyshop.security.hashing.timeout-ms:5000}") long timeoutMillis) {
+        this.bcrypt = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        this.timeoutMillis = timeoutMillis;
+
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hashing-"));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("easyshop.security.hashing.rejected", rejected, AtomicLong::get)
+                .description("Password hashes refused because the queue was full or the hash took too long")
+                .register(registry);
+        encodeTimer = Timer.builder("easyshop.security.hashing")
+                .tag("operation", "encode")
+                .register(registry);
+        matchesTimer = Timer.builder("easyshop.security.hashing")
+                .tag("operation", "matches")
+                .register(registry);
+        Gauge.builder("easyshop.security.hashing.queue", workers, executor -> executor.getQueue().size())
+                .description("Password hashes waiting for a hashing thread")
+                .register(registry);
+        Gauge.builder("easyshop.security.hashing.active", workers, ThreadPoolExecutor::getActiveCount)
+                .description("Hashing threads currently running BCrypt")
+                .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> bcrypt.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> bcrypt.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    ThreadPoolExecutor getExecutor() {
+        return workers;
+    }
+
+    private <T> T run(Timer timer, Callable<T> hash) {
+        Future<T> result;
+        try {
+            result = workers.submit(timer != null ? () -> timer.recordCallable(hash) : hash);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new PasswordHashingBusyException("Too many password hashes are queued", e);
+        }
+
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejected.incrementAndGet();
+            throw new PasswordHashingBusyException("Password hash did not finish within " + timeoutMillis + " ms", e);
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for a password hash", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
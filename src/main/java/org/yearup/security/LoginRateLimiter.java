@@ -0,0 +1,129 @@
+package org.yearup.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory token buckets for /login and /register, one per username and one per client IP.
+ * A request has to get a token from both before any database or BCrypt work is done.
+ *
+ * Each bucket is a single AtomicLong holding the time at which it will be full again (the GCRA form
+ * of a token bucket), so taking a token is one compare-and-set and never blocks. Buckets live in
+ * striped maps and a bucket that has refilled completely is dropped by the periodic sweep.
+ */
+@Component
+public class LoginRateLimiter implements MeterBinder {
+    private static final int STRIPES = 16;
+
+    private final Limit userLimit;
+    private final Limit ipLimit;
+    private final LongSupplier nanoClock;
+
+    @SuppressWarnings("unchecked")
+    private final ConcurrentHashMap<String, AtomicLong>[] stripes = new ConcurrentHashMap[STRIPES];
+
+    @Autowired
+    public LoginRateLimiter(@Value("${easyshop.security.rate-limit.user.burst:5}") int userBurst,
+                            @Value("${easyshop.security.rate-limit.user.per-minute:10}") int userPerMinute,
+                            @Value("${easyshop.security.rate-limit.ip.burst:20}") int ipBurst,
+                            @Value("${easyshop.security.rate-limit.ip.per-minute:60}") int ipPerMinute) {
+        this(userBurst, userPerMinute, ipBurst, ipPerMinute, System::nanoTime);
+    }
+
+    LoginRateLimiter(int userBurst, int userPerMinute, int ipBurst, int ipPerMinute, LongSupplier nanoClock) {
+        this.userLimit = new Limit(userBurst, userPerMinute);
+        this.ipLimit = new Limit(ipBurst, ipPerMinute);
+        this.nanoClock = nanoClock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Takes a token for the client IP and one for the username. Returns false when either bucket is
+     * empty; a missing username (e.g. an invalid request body) only counts against the IP.
+     */
+    public boolean tryAcquire(String username, String clientIp) {
+        if (!tryAcquire(ipLimit, "ip:" + clientIp)) {
+            return false;
+        }
+        return username == null || tryAcquire(userLimit, "user:" + username.toLowerCase(Locale.ROOT));
+    }
+
+    // a bucket that is full again carries no state worth keeping; a request racing with the sweep
+    // at worst starts from a fresh, full bucket
+    @Scheduled(fixedDelayString = "${easyshop.security.rate-limit.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            stripe.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("easyshop.security.throttled", userLimit.throttled, AtomicLong::get)
+                .description("Login and registration attempts refused with 429")
+                .tag("limit", "user")
+                .register(registry);
+        FunctionCounter.builder("easyshop.security.throttled", ipLimit.throttled, AtomicLong::get)
+                .description("Login and registration attempts refused with 429")
+                .tag("limit", "ip")
+                .register(registry);
+        Gauge.builder("easyshop.security.rate-limit.buckets", this, LoginRateLimiter::size)
+                .description("Usernames and IPs with a partly used token bucket")
+                .register(registry);
+    }
+
+    private boolean tryAcquire(Limit limit, String key) {
+        AtomicLong fullAt = stripes[(key.hashCode() & 0x7fffffff) % STRIPES]
+                .computeIfAbsent(key, k -> new AtomicLong(nanoClock.getAsLong()));
+
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = fullAt.get();
+            // an idle bucket is full, it never stores more than burst tokens
+            long next = Math.max(current, now) + limit.nanosPerToken;
+
+            if (next - now > limit.burstNanos) {
+                limit.throttled.incrementAndGet();
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    private static final class Limit {
+        private final long nanosPerToken;
+        // how far ahead of now the bucket may be full again, i.e. burst tokens' worth of refill time
+        private final long burstNanos;
+        private final AtomicLong throttled = new AtomicLong();
+
+        private Limit(int burst, int perMinute) {
+            this.nanosPerToken = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            this.burstNanos = nanosPerToken * burst;
+        }
+    }
+}
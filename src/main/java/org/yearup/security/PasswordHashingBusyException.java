@@ -0,0 +1,8 @@
+package org.yearup.security;
+
+// thrown when the password hashing pool can't take on more work, callers answer with 503
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 
@@ -15,10 +16,11 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 /**
- * Authenticate a user from the database.
+ * Authenticate a user from the database, and store the new hash when Spring Security rehashes
+ * a password on login because the configured BCrypt cost changed.
  */
 @Component("userDetailsService")
-public class UserModelDetailsService implements UserDetailsService {
+public class UserModelDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final Logger log = LoggerFactory.getLogger(UserModelDetailsService.class);
 
@@ -35,6 +37,15 @@ public class UserModelDetailsService implements UserDetailsService {
         return createSpringSecurityUser(lowercaseLogin, userDao.getByUserName(lowercaseLogin));
     }
 
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        log.debug("Storing rehashed password for user '{}'", user.getUsername());
+        userDao.updatePassword(user.getUsername(), newPassword);
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
     private org.springframework.security.core.userdetails.User createSpringSecurityUser(String lowercaseLogin, User user) {
         if (!user.isActivated()) {
             throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
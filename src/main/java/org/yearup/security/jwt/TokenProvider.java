@@ -1,6 +1,7 @@
 package org.yearup.security.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -8,6 +9,7 @@ import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -15,11 +17,13 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
+import org.yearup.data.cache.ExpiringLruCache;
 
 import java.security.Key;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 @Component
@@ -31,21 +35,41 @@ public class TokenProvider implements InitializingBean {
 
     private final String secret;
     private final long tokenTimeout;
+    private final LongSupplier clock;
+
+    // tokens that were already verified, kept until their exp claim so repeat requests skip parsing
+    private final ExpiringLruCache<String, Authentication> authentications;
 
     private Key key;
 
+    // JwtParser is immutable and thread-safe, so one instance serves every request
+    private JwtParser jwtParser;
+
 
+    @Autowired
     public TokenProvider(
             @Value("${jwt.secret}") String secret,
-            @Value("${jwt.token-timeout-seconds}") long tokenTimeoutSeconds) {
+            @Value("${jwt.token-timeout-seconds}") long tokenTimeoutSeconds,
+            @Value("${jwt.authentication-cache-size:10000}") int authenticationCacheSize) {
+        this(secret, tokenTimeoutSeconds, authenticationCacheSize, System::currentTimeMillis);
+    }
+
+    // the clock in epoch millis drives token expiry, both in the parser and in the cache
+    TokenProvider(String secret, long tokenTimeoutSeconds, int authenticationCacheSize, LongSupplier clock) {
         this.secret = secret;
         this.tokenTimeout = tokenTimeoutSeconds * 1000;
+        this.clock = clock;
+        this.authentications = new ExpiringLruCache<>(authenticationCacheSize, this.tokenTimeout, clock);
     }
 
     @Override
     public void afterPropertiesSet() {
         byte[] keyBytes = Decoders.BASE64.decode(secret);
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .setClock(() -> new Date(clock.getAsLong()))
+                .build();
     }
 
     public String createToken(Authentication authentication, boolean rememberMe) {
@@ -53,7 +77,7 @@ public class TokenProvider implements InitializingBean {
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.joining(","));
 
-        long now = (new Date()).getTime();
+        long now = clock.getAsLong();
         Date expirationDate = new Date(now + this.tokenTimeout);
 
         return Jwts.builder()
@@ -64,13 +88,40 @@ public class TokenProvider implements InitializingBean {
                 .compact();
     }
 
+    /**
+     * Verifies the token and returns its Authentication, or null when the token is invalid or expired.
+     * The signature is checked only once per token; after that the result is served from a cache
+     * until the token's expiration date.
+     */
+    public Authentication resolveAuthentication(String token) {
+        Authentication cached = authentications.get(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            Authentication authentication = toAuthentication(claims, token);
+
+            long expiresAt = claims.getExpiration() != null
+                    ? claims.getExpiration().getTime()
+                    : clock.getAsLong() + tokenTimeout;
+            authentications.put(token, authentication, expiresAt);
+
+            return authentication;
+        } catch (Exception e) {
+            logger.info("Token Invalid.");
+            logger.trace("Token Invalid trace: {}.", e.toString());
+        }
+        return null;
+    }
+
     public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        return toAuthentication(claims, token);
+    }
 
+    private Authentication toAuthentication(Claims claims, String token) {
         Collection<? extends GrantedAuthority> authorities =
                 Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
                         .map(SimpleGrantedAuthority::new)
@@ -83,7 +134,7 @@ public class TokenProvider implements InitializingBean {
 
     public boolean validateToken(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(authToken);
+            jwtParser.parseClaimsJws(authToken);
             return true;
         } catch (Exception e) {
             logger.info("Token Invalid.");
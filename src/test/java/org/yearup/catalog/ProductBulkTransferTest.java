@@ -0,0 +1,111 @@
+package org.yearup.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductDao;
+import org.yearup.models.Product;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductBulkTransferTest
+{
+    private ProductDao productDao;
+    private ProductBulkTransfer transfer;
+    private List<Product> inserted;
+
+    @BeforeEach
+    public void setup()
+    {
+        productDao = mock(ProductDao.class);
+        transfer = new ProductBulkTransfer(productDao, new ObjectMapper(), 500);
+
+        // the mocked DAO drains the iterator like the real batch insert does
+        inserted = new ArrayList<>();
+        when(productDao.createAll(any(), eq(500))).thenAnswer(invocation -> {
+            Iterator<Product> products = invocation.getArgument(0);
+            products.forEachRemaining(inserted::add);
+            return inserted.size();
+        });
+    }
+
+    @Test
+    public void importCsv_shouldMapColumnsByHeader()
+    {
+        // arrange
+        String csv = """
+                name,price,categoryId,color,stock,featured
+                Smartphone,499.99,1,Black,50,true
+                Laptop,899.99,1,Gray,30,false
+                """;
+
+        // act
+        int count = transfer.importProducts(stream(csv), ProductBulkTransfer.Format.CSV);
+
+        // assert
+        assertEquals(2, count);
+        assertEquals("Laptop", inserted.get(1).getName());
+        assertEquals(new BigDecimal("499.99"), inserted.get(0).getPrice());
+        assertTrue(inserted.get(0).isFeatured());
+    }
+
+    @Test
+    public void importNdjson_shouldRejectInvalidRow_withItsRowNumber()
+    {
+        // arrange
+        String ndjson = """
+                {"name":"Smartphone","price":499.99,"categoryId":1,"stock":50}
+                {"name":"","price":10.00,"categoryId":1,"stock":5}
+                """;
+
+        // act
+        ProductImportException ex = assertThrows(ProductImportException.class,
+                () -> transfer.importProducts(stream(ndjson), ProductBulkTransfer.Format.NDJSON));
+
+        // assert
+        assertEquals(2, ex.getRow());
+        verify(productDao, never()).createAll(any(), anyInt());
+        assertTrue(inserted.isEmpty(), "Because the whole file is validated before the transaction starts.");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void exportCsv_shouldWriteHeaderAndOneLinePerProduct() throws IOException
+    {
+        // arrange
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(4);
+            consumer.accept(new Product(1, "Smartphone", new BigDecimal("499.99"), 1, "Phone", "Black", 50, true, "phone.jpg"));
+            consumer.accept(new Product(2, "Laptop", new BigDecimal("899.99"), 1, "Laptop", "Gray", 30, false, "laptop.jpg"));
+            return null;
+        }).when(productDao).streamSearch(isNull(), isNull(), isNull(), isNull(), any(Consumer.class));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // act
+        transfer.exportProducts(output, ProductBulkTransfer.Format.CSV);
+
+        // assert
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("productId,name,price,categoryId,description,color,stock,featured,imageUrl", lines[0]);
+        assertEquals("2,Laptop,899.99,1,Laptop,Gray,30,false,laptop.jpg", lines[2]);
+    }
+
+    private static InputStream stream(String content)
+    {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,75 @@
+package org.yearup.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.ProfileDao;
+import org.yearup.data.UserDao;
+import org.yearup.models.authentication.LoginDto;
+import org.yearup.models.authentication.RegisterUserDto;
+import org.yearup.security.LoginRateLimiter;
+import org.yearup.security.jwt.TokenProvider;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AuthenticationControllerTest
+{
+    private AuthenticationManagerBuilder authenticationManagerBuilder;
+    private UserDao userDao;
+    private LoginRateLimiter rateLimiter;
+    private AuthenticationController controller;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    public void setup()
+    {
+        authenticationManagerBuilder = mock(AuthenticationManagerBuilder.class);
+        userDao = mock(UserDao.class);
+        rateLimiter = mock(LoginRateLimiter.class);
+        controller = new AuthenticationController(mock(TokenProvider.class), authenticationManagerBuilder, userDao, mock(ProfileDao.class), rateLimiter);
+
+        request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.7");
+    }
+
+    @Test
+    public void login_shouldAnswer429_beforeCheckingThePassword()
+    {
+        // arrange
+        when(rateLimiter.tryAcquire(anyString(), anyString())).thenReturn(false);
+        LoginDto login = new LoginDto();
+        login.setUsername("gary");
+        login.setPassword("password");
+
+        // act
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> controller.login(login, request));
+
+        // assert
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, ex.getStatus());
+        verify(rateLimiter).tryAcquire("gary", "203.0.113.7");
+        verifyNoInteractions(authenticationManagerBuilder, userDao);
+    }
+
+    @Test
+    public void register_shouldAnswer429_beforeCreatingTheUser()
+    {
+        // arrange
+        when(rateLimiter.tryAcquire(anyString(), anyString())).thenReturn(false);
+        RegisterUserDto user = new RegisterUserDto();
+        user.setUsername("gary");
+        user.setPassword("password");
+
+        // act
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> controller.register(user, request));
+
+        // assert
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, ex.getStatus());
+        verify(rateLimiter).tryAcquire("gary", "203.0.113.7");
+        verifyNoInteractions(userDao);
+    }
+}
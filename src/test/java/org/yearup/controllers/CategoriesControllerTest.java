@@ -10,11 +10,14 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.yearup.data.CategoryDao;
 import org.yearup.data.ProductDao;
+import org.yearup.data.cache.CatalogVersion;
+import org.yearup.data.events.CategoriesChangedEvent;
 import org.yearup.models.Category;
 
 import java.util.Arrays;
@@ -24,6 +27,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+@Import(CatalogVersion.class) // the real version counter, so ETags behave as in production
 @WebMvcTest(CategoriesController.class) // Limits the test to only the web for CategoriesController
 public class CategoriesControllerTest {
     @Autowired
@@ -49,6 +53,9 @@ public class CategoriesControllerTest {
     private org.yearup.security.UserModelDetailsService userModelDetailsService;
 
 
+    @Autowired
+    private CatalogVersion catalogVersion; // Source of the ETag the controller hands out
+
     @Autowired
     private ObjectMapper objectMapper; // Used to serialize/deserialize JSON objects
 
@@ -81,6 +88,28 @@ public class CategoriesControllerTest {
                 .andExpect(jsonPath(".description").value("Gadgets and more"));
     }
 
+    @Test
+    public void testGetAllCategoriesRevalidatesWithETag() throws Exception {
+        // Arrange: the client already has the current version of the catalog
+        String etag = catalogVersion.getETag();
+
+        // Act & Assert: the server answers 304 without asking the DAO
+        mockMvc.perform(get("/categories").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+        Mockito.verifyNoInteractions(categoryDao);
+
+        // Arrange: a category changes, which bumps the catalog version
+        Mockito.when(categoryDao.getAllCategories()).thenReturn(Arrays.asList(sampleCategory));
+        catalogVersion.onCategoriesChanged(new CategoriesChangedEvent(1));
+
+        // Act & Assert: the old ETag no longer matches, so the full list is sent again
+        mockMvc.perform(get("/categories").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", catalogVersion.getETag()))
+                .andExpect(jsonPath("[0].name").value("Electronics"));
+    }
+
     @Test
     @WithMockUser(roles = {"ADMIN"}) // Simulates an admin user
     public void testAddCategory() throws Exception {
@@ -4,23 +4,29 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.web.server.ResponseStatusException;
 import org.yearup.data.OrderDao;
-import org.yearup.data.OrderLineItemDao;
+import org.yearup.data.ProfileDao;
 import org.yearup.data.ShoppingCartDao;
 import org.yearup.data.UserDao;
 import org.yearup.models.*;
 
 import java.math.BigDecimal;
 import java.security.Principal;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 // Unit tests for the OrdersController class
 // This test verifies that the checkout process correctly:
-// - Creates an order
-// - Adds all shopping cart items as line items
-// - Clears the shopping cart after checkout
+// - Creates an order together with all shopping cart items as line items
+// - Ships the order to the address in the user's profile
+// - Leaves clearing the shopping cart to the same transaction as the order
 
 @WithMockUser // Simulate an authenticated user for Spring Security
 public class OrdersControllerTest {
@@ -35,7 +41,7 @@ public class OrdersControllerTest {
     private ShoppingCartDao shoppingCartDao; // Mocked dependency for retrieving/clearing shopping cart
 
     @Mock
-    private OrderLineItemDao orderLineItemDao; // Mocked dependency for inserting order line items
+    private ProfileDao profileDao; // Mocked dependency for the shipping address
 
     @Mock
     private Principal mockPrincipal; // Mocked Principal to simulate the current logged-in user
@@ -49,7 +55,7 @@ public class OrdersControllerTest {
     }
 
     @Test
-    public void checkout_ShouldCreateOrderAndLineItemsAndClearCart() {
+    public void checkout_ShouldCreateOrderWithLineItemsInOneCall() {
         // Arrange
         int userId = 1; // Simulated user ID for the logged-in user
 
@@ -78,19 +84,86 @@ public class OrdersControllerTest {
         // Set up the mocks to return the correct data
         when(mockPrincipal.getName()).thenReturn(String.valueOf(userId)); // Simulate logged-in user
         when(shoppingCartDao.getByUserId(userId)).thenReturn(cart); // Return the cart for the user
-        when(orderDao.create(any(Order.class))).thenReturn(newOrder); // Return the new order from DB
+        when(orderDao.createFromCart(any(Order.class), anyList())).thenReturn(newOrder); // Return the new order from DB
+        when(profileDao.getByUserId(userId)).thenReturn(profile("789 Oak Avenue", "Dallas", "TX", "75051"));
 
         // Act
         controller.checkout(mockPrincipal); // Call the method we’re testing
 
         // Assert
-        // Verify that an order was created and passed to the DAO
-        verify(orderDao, times(1)).create(any(Order.class));
+        // Verify that the order and its line item were created in a single call to the DAO
+        ArgumentCaptor<Order> order = ArgumentCaptor.forClass(Order.class);
+        ArgumentCaptor<List<OrderLineItem>> lineItems = ArgumentCaptor.forClass(List.class);
+        verify(orderDao, times(1)).createFromCart(order.capture(), lineItems.capture());
+        assertEquals(1, lineItems.getValue().size());
+        assertEquals(2, lineItems.getValue().get(0).getQuantity());
+
+        // Verify that the order ships to the address in the user's profile
+        assertEquals("789 Oak Avenue", order.getValue().getAddress());
+        assertEquals("75051", order.getValue().getZip());
+
+        // Verify that the cart is not cleared separately, the order transaction already empties it
+        verify(shoppingCartDao, never()).clearCart(userId);
+
+        // Verify that pending cart changes are written before the cart is read, and the in-memory copy dropped after
+        InOrder inOrder = inOrder(shoppingCartDao, orderDao);
+        inOrder.verify(shoppingCartDao).flush(userId);
+        inOrder.verify(shoppingCartDao).getByUserId(userId);
+        inOrder.verify(orderDao).createFromCart(any(Order.class), anyList());
+        inOrder.verify(shoppingCartDao).evict(userId);
+    }
+
+    @Test
+    public void checkout_ShouldRejectTheOrder_WithoutAProfile() {
+        // Arrange: a cart, but no profile to ship to
+        User user = new User();
+        user.setId(1);
+        when(mockPrincipal.getName()).thenReturn("user");
+        when(userDao.getByUserName("user")).thenReturn(user);
+
+        Product product = new Product();
+        product.setProductId(100);
+        product.setPrice(new BigDecimal("49.99"));
+        ShoppingCart cart = new ShoppingCart();
+        cart.add(new ShoppingCartItem(product, 1));
+        when(shoppingCartDao.getByUserId(1)).thenReturn(cart);
+
+        // Act & Assert
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> controller.checkout(mockPrincipal));
+        assertEquals(400, e.getRawStatusCode());
+        verify(orderDao, never()).createFromCart(any(), anyList());
+    }
+
+    @Test
+    public void listOrders_ShouldReturnSummaries_WithTokenForNextPage() {
+        // Arrange
+        User user = new User();
+        user.setId(1);
+        when(mockPrincipal.getName()).thenReturn("user");
+        when(userDao.getByUserName("user")).thenReturn(user);
 
-        // Verify that a line item was created for the cart item
-        verify(orderLineItemDao, times(1)).create(any(OrderLineItem.class));
+        // the DAO is asked for one summary more than the page size and returns it
+        List<OrderSummary> summaries = List.of(
+                new OrderSummary(9, LocalDate.now(), 1, 2, new BigDecimal("20.00"), new BigDecimal("5.99")),
+                new OrderSummary(8, LocalDate.now(), 3, 3, new BigDecimal("30.00"), new BigDecimal("5.99")));
+        when(orderDao.listSummariesByUserId(1, null, 2)).thenReturn(summaries);
+
+        // Act
+        OrderPage<OrderSummary> page = controller.listOrders(mockPrincipal, 1, null);
+
+        // Assert
+        assertEquals(1, page.getOrders().size());
+        assertEquals(9, page.getOrders().get(0).getOrderId());
+        assertNotNull(page.getNextToken(), "Because another order follows this page.");
+        verify(orderDao, never()).listByUserId(anyInt(), any(), anyInt());
+    }
 
-        // Verify that the cart was cleared after checkout
-        verify(shoppingCartDao, times(1)).clearCart(userId);
+    private static Profile profile(String address, String city, String state, String zip) {
+        Profile profile = new Profile();
+        profile.setAddress(address);
+        profile.setCity(city);
+        profile.setState(state);
+        profile.setZip(zip);
+        return profile;
     }
 }
@@ -7,21 +7,32 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.yearup.catalog.ProductBulkTransfer;
 import org.yearup.data.ProductDao;
+import org.yearup.data.cache.CatalogVersion;
 import org.yearup.models.Product;
+import org.yearup.models.ProductSearchResult;
+import org.yearup.search.ProductSearchIndex;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+@Import(CatalogVersion.class) // the real version counter, so ETags behave as in production
 @WebMvcTest(ProductsController.class) // Test only the ProductsController (web layer)
 public class ProductsControllerTest {
     @Autowired
@@ -30,6 +41,12 @@ public class ProductsControllerTest {
     @MockBean
     private ProductDao productDao; // Mocked DAO dependency
 
+    @MockBean
+    private ProductSearchIndex searchIndex; // Mocked keyword search index
+
+    @MockBean
+    private ProductBulkTransfer bulkTransfer; // Mocked bulk import and export
+
     // Mock security components to avoid actual authentication/authorization
     @MockBean
     private org.yearup.security.jwt.TokenProvider tokenProvider;
@@ -43,6 +60,9 @@ public class ProductsControllerTest {
     @MockBean
     private org.yearup.security.UserModelDetailsService userModelDetailsService;
 
+    @Autowired
+    private CatalogVersion catalogVersion; // Source of the ETag the controller hands out
+
     @Autowired
     private ObjectMapper objectMapper; // For converting Java objects to JSON and vice versa
 
@@ -56,6 +76,49 @@ public class ProductsControllerTest {
         sampleProduct2 = new Product(2, "Blue Shirt", new BigDecimal("49.99"), 2, "A blue shirt", "blue", 15, true, "url2");
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSearchStream_ShouldWriteEveryRow_AsOneArray() throws Exception {
+        // Arrange: the DAO hands over two rows
+        Mockito.doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(4);
+            consumer.accept(sampleProduct1);
+            consumer.accept(sampleProduct2);
+            return null;
+        }).when(productDao).streamSearch(eq(1), isNull(), isNull(), isNull(), any(Consumer.class));
+
+        // Act: the body is written asynchronously, so dispatch again once it is done
+        MvcResult result = mockMvc.perform(get("/products/stream?cat=1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("[1].name").value("Blue Shirt"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSearchStream_ShouldNotEndTheArray_WhenTheQueryFailsPartWay() throws Exception {
+        // Arrange: the connection drops after the first row
+        Mockito.doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(4);
+            consumer.accept(sampleProduct1);
+            throw new RuntimeException("Connection reset");
+        }).when(productDao).streamSearch(isNull(), isNull(), isNull(), isNull(), any(Consumer.class));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/products/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert: the failure reaches the container instead of a closed, valid looking array
+        assertInstanceOf(RuntimeException.class, result.getAsyncResult());
+        assertFalse(result.getResponse().getContentAsString().endsWith("]"));
+    }
+
     @Test
     public void testSearchProductsWithCategoryFilter() throws Exception {
         // Arrange: Set up mock return value when searching by category
@@ -91,6 +154,59 @@ public class ProductsControllerTest {
                 .andExpect(jsonPath("[0].color").value("blue"));
     }
 
+    @Test
+    public void testGetByIdReturnsNotModifiedForCurrentETag() throws Exception {
+        // Act & Assert: a client revalidating with the current ETag gets a 304 and the DAO is never called
+        mockMvc.perform(get("/products/1").header("If-None-Match", catalogVersion.getETag()))
+                .andExpect(status().isNotModified());
+
+        Mockito.verifyNoInteractions(productDao);
+    }
+
+    @Test
+    public void testSearchPageReturnsContinuationToken() throws Exception {
+        // Arrange: the DAO is asked for one row more than the page size and returns it
+        Mockito.when(productDao.search(null, null, null, null, null, 2))
+                .thenReturn(List.of(sampleProduct1, sampleProduct2));
+
+        // Act & Assert: only one product is returned, together with a token for the next page
+        mockMvc.perform(get("/products/page?size=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products.length()").value(1))
+                .andExpect(jsonPath("$.products[0].name").value("Red Shirt"))
+                .andExpect(jsonPath("$.nextToken").isNotEmpty());
+    }
+
+    @Test
+    public void testKeywordSearchReturnsMatchesAndFacets() throws Exception {
+        // Arrange: the index finds one shirt in category 1
+        ProductSearchResult result = new ProductSearchResult(List.of(sampleProduct1), 1,
+                Map.of(1, 1), Map.of("red", 1), Map.of("25-50", 1));
+        Mockito.when(searchIndex.isBuilt()).thenReturn(true);
+        Mockito.when(searchIndex.search("red shirt", null, null, null, null, 50)).thenReturn(result);
+
+        // Act & Assert: matches, total and facet counts are all part of the response
+        mockMvc.perform(get("/products/search?q=red shirt"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.products[0].name").value("Red Shirt"))
+                .andExpect(jsonPath("$.colors.red").value(1));
+
+        Mockito.verifyNoInteractions(productDao);
+    }
+
+    @Test
+    public void testKeywordSearchAnswers503_UntilTheIndexIsBuilt() throws Exception {
+        // Arrange: the catalog could not be read at startup
+        Mockito.when(searchIndex.isBuilt()).thenReturn(false);
+
+        // Act & Assert: no empty result that looks like "nothing matched"
+        mockMvc.perform(get("/products/search?q=red shirt"))
+                .andExpect(status().isServiceUnavailable());
+
+        Mockito.verify(searchIndex, Mockito.never()).search(any(), any(), any(), any(), any(), Mockito.anyInt());
+    }
+
     @Test
     @WithMockUser(roles = {"ADMIN"}) // Simulate an admin user
     public void testUpdateProductFixesBug2() throws Exception {
@@ -16,10 +16,12 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.yearup.data.ProductDao;
 import org.yearup.data.ShoppingCartDao;
 import org.yearup.data.UserDao;
+import org.yearup.models.CartDelta;
 import org.yearup.models.QuantityUpdateDto;
 import org.yearup.models.ShoppingCart;
 import org.yearup.models.User;
 
+import java.math.BigDecimal;
 import java.security.Principal;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -81,17 +83,44 @@ public class ShoppingCartControllerTest {
     public void testPostCart_AddsProductToCart() throws Exception {
         // Arrange
         Mockito.when(userDao.getByUserName("testUser")).thenReturn(mockUser);
-        Mockito.when(shoppingCartDao.existsInCart(1, 15)).thenReturn(false);
-        Mockito.when(shoppingCartDao.getByUserId(1)).thenReturn(new ShoppingCart());
+        Mockito.when(shoppingCartDao.incrementProduct(1, 15))
+                .thenReturn(new CartDelta(15, 2, new BigDecimal("19.98"), new BigDecimal("49.97")));
 
         Principal mockPrincipal = () -> "testUser";
 
-        // Act & Assert
+        // Act & Assert: only the changed line and the new total come back
         mockMvc.perform(post("/cart/products/15")
                         .principal(mockPrincipal))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.productId").value(15))
+                .andExpect(jsonPath("$.quantity").value(2))
+                .andExpect(jsonPath("$.total").value(49.97))
+                .andExpect(jsonPath("$.items").doesNotExist());
+
+        // The add is a single atomic upsert, without a re-read
+        Mockito.verify(shoppingCartDao).incrementProduct(1, 15);
+        Mockito.verify(shoppingCartDao, Mockito.never()).getByUserId(1);
+    }
+
+    @Test
+    @WithMockUser(username = "testUser")
+    public void testPostCart_ReturnsFullCart_WhenPreferred() throws Exception {
+        // Arrange
+        Mockito.when(userDao.getByUserName("testUser")).thenReturn(mockUser);
+        Mockito.when(shoppingCartDao.incrementProduct(1, 15))
+                .thenReturn(new CartDelta(15, 1, new BigDecimal("9.99"), new BigDecimal("9.99")));
+        Mockito.when(shoppingCartDao.getByUserId(1)).thenReturn(new ShoppingCart());
+
+        Principal mockPrincipal = () -> "testUser";
 
-        Mockito.verify(shoppingCartDao).addProduct(1, 15);
+        // Act & Assert: the client opted in to the whole cart
+        mockMvc.perform(post("/cart/products/15")
+                        .principal(mockPrincipal)
+                        .header("Prefer", "return=representation"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").exists());
+
+        Mockito.verify(shoppingCartDao).getByUserId(1);
     }
 
 
@@ -101,16 +130,18 @@ public class ShoppingCartControllerTest {
         // Arrange
         Mockito.when(userDao.getByUserName("testUser")).thenReturn(mockUser);
         Mockito.doNothing().when(shoppingCartDao).clearCart(1);
-        Mockito.when(shoppingCartDao.getByUserId(1)).thenReturn(new ShoppingCart());
 
         // Create a fake Principal that returns "testUser"
         Principal mockPrincipal = () -> "testUser";
 
         // Act & Assert
         mockMvc.perform(delete("/cart").principal(mockPrincipal))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(0));
 
+        // The emptied cart is not read back
         Mockito.verify(shoppingCartDao).clearCart(1);
+        Mockito.verify(shoppingCartDao, Mockito.never()).getByUserId(1);
     }
 
 
@@ -119,8 +150,8 @@ public class ShoppingCartControllerTest {
     public void testPutCart_UpdatesQuantityOfCartItem() throws Exception {
         // Arrange
         Mockito.when(userDao.getByUserName("testUser")).thenReturn(mockUser);
-        Mockito.when(shoppingCartDao.existsInCart(1, 15)).thenReturn(true);
-        Mockito.doNothing().when(shoppingCartDao).updateQuantity(1, 15, 3);
+        Mockito.when(shoppingCartDao.setQuantity(1, 15, 3))
+                .thenReturn(new CartDelta(15, 3, new BigDecimal("29.97"), new BigDecimal("29.97")));
 
         QuantityUpdateDto updateDto = new QuantityUpdateDto();
         updateDto.setQuantity(3);
@@ -132,9 +163,30 @@ public class ShoppingCartControllerTest {
                         .principal(mockPrincipal)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(updateDto)))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(3))
+                .andExpect(jsonPath("$.lineTotal").value(29.97));
+
+        Mockito.verify(shoppingCartDao).setQuantity(1, 15, 3);
+    }
 
-        Mockito.verify(shoppingCartDao).updateQuantity(1, 15, 3);
+    @Test
+    @WithMockUser(username = "testUser")
+    public void testPutCart_ReturnsNotFound_WhenProductIsNotInCart() throws Exception {
+        // Arrange: no row was updated, so there is no delta
+        Mockito.when(userDao.getByUserName("testUser")).thenReturn(mockUser);
+
+        QuantityUpdateDto updateDto = new QuantityUpdateDto();
+        updateDto.setQuantity(3);
+
+        Principal mockPrincipal = () -> "testUser";
+
+        // Act & Assert
+        mockMvc.perform(put("/cart/products/15")
+                        .principal(mockPrincipal)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateDto)))
+                .andExpect(status().isNotFound());
     }
 
 }
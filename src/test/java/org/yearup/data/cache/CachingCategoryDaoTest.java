@@ -0,0 +1,116 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.events.CategoriesChangedEvent;
+import org.yearup.data.events.ProductsChangedEvent;
+import org.yearup.data.mysql.MySqlCategoryDao;
+import org.yearup.models.Category;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.*;
+
+class CachingCategoryDaoTest
+{
+    private MySqlCategoryDao delegate;
+    private CachingCategoryDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        delegate = mock(MySqlCategoryDao.class);
+        when(delegate.getAllWithProductStats()).thenReturn(List.of(category(1, "Electronics", 12), category(2, "Fashion", 0)));
+
+        dao = new CachingCategoryDao(delegate);
+    }
+
+    @Test
+    public void reads_shouldShareOneSnapshot_withoutFurtherQueries()
+    {
+        // act
+        dao.getAllCategories();
+        dao.getAllCategories();
+        Category electronics = dao.getById(1);
+
+        // assert
+        assertEquals(12, electronics.getProductCount(), "Because counts are part of the snapshot.");
+        assertNull(dao.getById(3), "Because unknown categories are simply not in the snapshot.");
+        verify(delegate, times(1)).getAllWithProductStats();
+        verify(delegate, never()).getAllCategories();
+        verify(delegate, never()).getById(anyInt());
+    }
+
+    @Test
+    public void categoryChange_shouldRebuildSnapshotRightAway()
+    {
+        // arrange
+        dao.warm();
+        when(delegate.getAllWithProductStats()).thenReturn(List.of(category(1, "Gadgets", 12)));
+
+        // act
+        dao.onCategoriesChanged(new CategoriesChangedEvent(1));
+
+        // assert
+        verify(delegate, times(2)).getAllWithProductStats();
+        assertEquals("Gadgets", dao.getById(1).getName());
+        assertEquals(1, dao.getAllCategories().size());
+    }
+
+    @Test
+    public void productChange_shouldReloadCounts_onNextRead()
+    {
+        // arrange
+        dao.warm();
+        when(delegate.getAllWithProductStats()).thenReturn(List.of(category(1, "Electronics", 11)));
+
+        // act
+        dao.onProductsChanged(new ProductsChangedEvent(List.of(5, 6)));
+
+        // assert
+        verify(delegate, times(1)).getAllWithProductStats();
+        assertEquals(11, dao.getById(1).getProductCount());
+        verify(delegate, times(2)).getAllWithProductStats();
+    }
+
+    @Test
+    public void stockChange_shouldKeepTheSnapshot()
+    {
+        // arrange
+        dao.warm();
+
+        // act: a checkout only changed stock, which the snapshot doesn't hold
+        dao.onProductsChanged(ProductsChangedEvent.stockChanged(List.of(5, 6)));
+        dao.getAllCategories();
+
+        // assert
+        verify(delegate, times(1)).getAllWithProductStats();
+    }
+
+    @Test
+    public void productChange_duringALoad_shouldNotBeLost()
+    {
+        // arrange: a product changes while the counts are being queried
+        when(delegate.getAllWithProductStats()).thenAnswer(invocation -> {
+            dao.onProductsChanged(ProductsChangedEvent.of(5));
+            return List.of(category(1, "Electronics", 12));
+        }).thenReturn(List.of(category(1, "Electronics", 13)));
+
+        // act
+        int first = dao.getById(1).getProductCount();
+        int second = dao.getById(1).getProductCount();
+
+        // assert
+        assertEquals(12, first);
+        assertEquals(13, second, "Because the snapshot loaded before the change was not kept.");
+    }
+
+    private static Category category(int categoryId, String name, int productCount)
+    {
+        Category category = new Category(categoryId, name, name + " description");
+        category.setProductCount(productCount);
+        return category;
+    }
+}
@@ -0,0 +1,118 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.events.ProductsChangedEvent;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingProductDaoTest
+{
+    private MySqlProductDao delegate;
+    private CachingProductDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        delegate = mock(MySqlProductDao.class);
+        when(delegate.getById(1)).thenReturn(product(1, "Smartphone"));
+        when(delegate.listByCategoryId(1)).thenReturn(List.of(product(1, "Smartphone")));
+
+        dao = new CachingProductDao(delegate, 100, 300);
+    }
+
+    @Test
+    public void getById_shouldLoadOnce_andServeRepeatsFromMemory()
+    {
+        // act
+        Product first = dao.getById(1);
+        Product second = dao.getById(1);
+
+        // assert
+        assertSame(first, second);
+        verify(delegate, times(1)).getById(1);
+        assertEquals(1, dao.getProductCache().getHitCount());
+        assertEquals(1, dao.getProductCache().getMissCount());
+    }
+
+    @Test
+    public void getByIds_shouldOnlyLoadTheMissingIds()
+    {
+        // arrange
+        dao.getById(1);
+        when(delegate.getByIds(List.of(2))).thenReturn(List.of(product(2, "Laptop")));
+
+        // act
+        List<Product> products = dao.getByIds(List.of(1, 2));
+
+        // assert
+        assertEquals(2, products.size());
+        verify(delegate).getByIds(List.of(2));
+        assertEquals(2, dao.getProductCache().size());
+    }
+
+    @Test
+    public void onProductsChanged_shouldReloadTheChangedProduct_andEveryListing()
+    {
+        // arrange
+        dao.getById(1);
+        dao.listByCategoryId(1);
+
+        // act
+        dao.onProductsChanged(ProductsChangedEvent.of(1));
+        dao.getById(1);
+        dao.listByCategoryId(1);
+
+        // assert
+        verify(delegate, times(2)).getById(1);
+        verify(delegate, times(2)).listByCategoryId(1);
+    }
+
+    @Test
+    public void getById_shouldNotCacheALoad_thatAnInvalidationOvertook()
+    {
+        // arrange: the product is updated after its old row was read, before it is cached
+        when(delegate.getById(1)).thenAnswer(invocation -> {
+            Product oldRow = product(1, "Smartphone");
+            dao.onProductsChanged(ProductsChangedEvent.of(1));
+            return oldRow;
+        }).thenReturn(product(1, "Smartphone Pro"));
+
+        // act
+        Product first = dao.getById(1);
+        Product second = dao.getById(1);
+
+        // assert
+        assertEquals("Smartphone", first.getName(), "Because the caller still gets what it read.");
+        assertEquals("Smartphone Pro", second.getName(), "Because the old row was never cached.");
+    }
+
+    @Test
+    public void listByCategoryId_shouldNotCacheALoad_thatAnInvalidationOvertook()
+    {
+        // arrange
+        when(delegate.listByCategoryId(1)).thenAnswer(invocation -> {
+            dao.onProductsChanged(ProductsChangedEvent.of(2));
+            return List.of(product(1, "Smartphone"));
+        }).thenReturn(List.of(product(1, "Smartphone"), product(2, "Laptop")));
+
+        // act
+        dao.listByCategoryId(1);
+        List<Product> second = dao.listByCategoryId(1);
+
+        // assert
+        assertEquals(2, second.size());
+        assertEquals(0, dao.getCategoryCache().getHitCount());
+    }
+
+    private static Product product(int productId, String name)
+    {
+        return new Product(productId, name, new BigDecimal("9.99"), 1, "", "Black", 10, false, "");
+    }
+}
@@ -0,0 +1,83 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.mysql.MySqlUserDao;
+import org.yearup.models.User;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CachingUserDaoTest
+{
+    private MySqlUserDao delegate;
+    private CachingUserDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        delegate = mock(MySqlUserDao.class);
+        when(delegate.getByUserName(anyString())).thenAnswer(invocation ->
+                "gary".equalsIgnoreCase(invocation.getArgument(0)) ? new User(1, "gary", "hash", "ROLE_USER") : null);
+
+        dao = new CachingUserDao(delegate, 100, 60);
+    }
+
+    @Test
+    public void getByUserName_shouldShareOneEntry_acrossLetterCase()
+    {
+        // act
+        User first = dao.getByUserName("Gary");
+        User second = dao.getByUserName("GARY");
+        int userId = dao.getIdByUsername("gary");
+
+        // assert
+        assertSame(first, second);
+        assertEquals(1, userId);
+        verify(delegate, times(1)).getByUserName(anyString());
+    }
+
+    @Test
+    public void getByUserName_shouldNotCacheAnUnknownUsername()
+    {
+        // act
+        assertFalse(dao.exists("jenny"));
+        assertFalse(dao.exists("jenny"));
+
+        // assert: every check goes to the database, so a registration in between is seen at once
+        verify(delegate, times(2)).getByUserName("jenny");
+        assertEquals(0, dao.getCache().size());
+    }
+
+    @Test
+    public void create_shouldDropTheCachedEntry_forThatUsername()
+    {
+        // arrange
+        dao.getByUserName("gary");
+        User user = new User(0, "Gary", "password", "ROLE_USER");
+
+        // act
+        dao.create(user);
+        dao.getByUserName("gary");
+
+        // assert
+        verify(delegate).create(user);
+        verify(delegate, times(2)).getByUserName(anyString());
+    }
+
+    @Test
+    public void updatePassword_shouldDropTheCachedEntry_soTheNewHashIsRead()
+    {
+        // arrange
+        dao.getByUserName("gary");
+
+        // act
+        dao.updatePassword("GARY", "new-hash");
+        dao.getByUserName("gary");
+
+        // assert
+        verify(delegate).updatePassword("GARY", "new-hash");
+        verify(delegate, times(2)).getByUserName(anyString());
+    }
+}
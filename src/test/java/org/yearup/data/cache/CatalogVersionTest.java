@@ -0,0 +1,42 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.Test;
+import org.yearup.data.events.CategoriesChangedEvent;
+import org.yearup.data.events.ProductsChangedEvent;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogVersionTest
+{
+    @Test
+    public void getETag_shouldChange_onEveryCatalogWrite()
+    {
+        // arrange
+        CatalogVersion version = new CatalogVersion("a");
+        String before = version.getETag();
+
+        // act
+        version.onProductsChanged(ProductsChangedEvent.of(1));
+        String afterProduct = version.getETag();
+        version.onCategoriesChanged(new CategoriesChangedEvent(1));
+
+        // assert
+        assertNotEquals(before, afterProduct);
+        assertNotEquals(afterProduct, version.getETag());
+    }
+
+    @Test
+    public void getETag_shouldDiffer_betweenInstancesWithTheSameNumberOfWrites()
+    {
+        // arrange: two instances behind one load balancer, each saw one write of its own
+        CatalogVersion first = new CatalogVersion();
+        CatalogVersion second = new CatalogVersion();
+
+        // act
+        first.onProductsChanged(ProductsChangedEvent.of(1));
+        second.onProductsChanged(ProductsChangedEvent.of(2));
+
+        // assert
+        assertNotEquals(first.getETag(), second.getETag(), "Because neither instance can vouch for what the other served.");
+    }
+}
@@ -0,0 +1,86 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringLruCacheTest
+{
+    private AtomicLong now;
+    private ExpiringLruCache<Integer, String> cache;
+
+    @BeforeEach
+    public void setup()
+    {
+        // a manual clock so expiry can be tested without sleeping
+        now = new AtomicLong(1_000);
+        cache = new ExpiringLruCache<>(2, 100, now::get);
+    }
+
+    @Test
+    public void get_shouldCountHitsAndMisses()
+    {
+        // arrange
+        cache.put(1, "one");
+
+        // act
+        String hit = cache.get(1);
+        String miss = cache.get(2);
+
+        // assert
+        assertEquals("one", hit);
+        assertNull(miss);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void put_shouldEvictLeastRecentlyUsed_whenFull()
+    {
+        // arrange
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1); // 2 is now the least recently used entry
+
+        // act
+        cache.put(3, "three");
+
+        // assert
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2), "Because 2 was the least recently used entry.");
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void get_shouldMiss_afterTimeToLive()
+    {
+        // arrange
+        cache.put(1, "one");
+
+        // act
+        now.addAndGet(100);
+
+        // assert
+        assertNull(cache.get(1), "Because the entry has expired.");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void putUnlessInvalidated_shouldSkipTheValue_afterAnInvalidation()
+    {
+        // arrange
+        long generation = cache.getGeneration();
+        cache.invalidate(2);
+
+        // act
+        boolean stored = cache.putUnlessInvalidated(1, "one", generation);
+
+        // assert
+        assertFalse(stored);
+        assertNull(cache.get(1));
+        assertTrue(cache.putUnlessInvalidated(1, "one", cache.getGeneration()));
+    }
+}
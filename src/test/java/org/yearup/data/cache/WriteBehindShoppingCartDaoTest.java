@@ -0,0 +1,140 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductDao;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WriteBehindShoppingCartDaoTest
+{
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private MySqlShoppingCartDao database;
+    private ProductDao productDao;
+    private WriteBehindShoppingCartDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        database = mock(MySqlShoppingCartDao.class);
+        productDao = mock(ProductDao.class);
+        when(productDao.getById(anyInt())).thenReturn(new Product());
+        when(productDao.getByIds(any())).thenAnswer(invocation -> {
+            Collection<Integer> productIds = invocation.getArgument(0);
+            return productIds.stream().map(WriteBehindShoppingCartDaoTest::product).toList();
+        });
+        when(database.getQuantities(anyInt())).thenReturn(Map.of());
+
+        // carts are dropped after one minute without access
+        dao = new WriteBehindShoppingCartDao(database, productDao, 60_000, now::get);
+    }
+
+    @Test
+    public void flushDirty_shouldWriteOnlyTheLatestQuantities_once()
+    {
+        // arrange
+        dao.incrementProduct(1, 10);
+        dao.incrementProduct(1, 10);
+        dao.incrementProduct(1, 20);
+        dao.setQuantity(1, 20, 5);
+        verify(database, never()).saveQuantities(any());
+
+        // act
+        dao.flushDirty();
+        dao.flushDirty();
+
+        // assert
+        verify(database, times(1)).getQuantities(1);
+        verify(database, times(1)).saveQuantities(Map.of(1, Map.of(10, 2, 20, 5)));
+        assertEquals(0, dao.getDirtyCount());
+    }
+
+    @Test
+    public void flush_shouldDeleteClearedLines_loadedFromTheDatabase()
+    {
+        // arrange: the cart was written before a restart
+        when(database.getQuantities(1)).thenReturn(Map.of(10, 2, 20, 1));
+        assertEquals(2, dao.getByUserId(1).get(10).getQuantity(), "Because the cart is loaded on first access.");
+        dao.clearCart(1);
+        dao.incrementProduct(1, 20);
+
+        // act
+        dao.flush(1);
+
+        // assert: product 20 already has quantity 1 in the table, only product 10 changes
+        Map<Integer, Integer> lines = new HashMap<>();
+        lines.put(10, null);
+        verify(database).saveQuantities(Map.of(1, lines));
+    }
+
+    @Test
+    public void flushDirty_shouldKeepAFailedCartDirty_andWriteTheOthers()
+    {
+        // arrange: any write that includes user 2 fails
+        doThrow(new RuntimeException("deadlock")).when(database).saveQuantities(argThat(carts -> carts.containsKey(2)));
+        dao.incrementProduct(1, 10);
+        dao.incrementProduct(2, 10);
+
+        // act
+        dao.flushDirty();
+
+        // assert
+        verify(database).saveQuantities(Map.of(1, Map.of(10, 1)));
+        assertEquals(1, dao.getDirtyCount());
+        assertThrows(RuntimeException.class, () -> dao.flush(2), "Because checkout must not go ahead with an unsaved cart.");
+    }
+
+    @Test
+    public void flushDirty_shouldEvictIdleCleanCarts_andReloadThemLater()
+    {
+        // arrange
+        dao.incrementProduct(1, 10);
+        now.addAndGet(120_000);
+
+        // act: the dirty cart is written first, and only then dropped
+        dao.flushDirty();
+
+        // assert
+        verify(database).saveQuantities(Map.of(1, Map.of(10, 1)));
+        assertEquals(0, dao.size());
+
+        dao.getByUserId(1);
+        verify(database, times(2)).getQuantities(1);
+    }
+
+    @Test
+    public void flush_shouldDropALine_forAProductDeletedBeforeTheFlush()
+    {
+        // arrange: product 20 is deleted by an admin after the user added it, so its row fails the foreign key
+        dao.incrementProduct(1, 10);
+        dao.incrementProduct(1, 20);
+        doThrow(new RuntimeException("FOREIGN KEY constraint")).when(database)
+                .saveQuantities(argThat(carts -> carts.get(1).containsKey(20)));
+        doReturn(List.of(product(10))).when(productDao).getByIds(any());
+
+        // act: checkout flushes first
+        dao.flush(1);
+
+        // assert
+        verify(database).saveQuantities(Map.of(1, Map.of(10, 1)));
+        assertEquals(0, dao.getDirtyCount());
+        dao.flushDirty();
+        verify(database, times(2)).saveQuantities(any());
+    }
+
+    private static Product product(int productId)
+    {
+        return new Product(productId, "Product " + productId, new BigDecimal("9.99"), 1, "", "Black", 10, false, "");
+    }
+}
@@ -0,0 +1,71 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class JdbcConcurrencyLimiterTest
+{
+    private DataSource dataSource;
+    private Connection connection;
+    private JdbcConcurrencyLimiter limiter;
+
+    @BeforeEach
+    public void setup() throws SQLException
+    {
+        dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        limiter = new JdbcConcurrencyLimiter(2, 50);
+    }
+
+    @Test
+    public void closingConnection_shouldReturnPermit_onlyOnce() throws SQLException
+    {
+        // arrange
+        Connection borrowed = limiter.getConnection(dataSource);
+        assertEquals(1, limiter.getAvailablePermits());
+
+        // act
+        borrowed.close();
+        borrowed.close();
+
+        // assert
+        assertEquals(2, limiter.getAvailablePermits(), "Because a second close must not hand out an extra permit.");
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    public void getConnection_shouldTimeOut_whenAllPermitsAreTaken() throws SQLException
+    {
+        // arrange
+        limiter.getConnection(dataSource);
+        limiter.getConnection(dataSource);
+
+        // act & assert
+        assertThrows(SQLTransientConnectionException.class, () -> limiter.getConnection(dataSource));
+        verify(dataSource, times(2)).getConnection();
+    }
+
+    @Test
+    public void failedBorrow_shouldReturnPermit() throws SQLException
+    {
+        // arrange
+        when(dataSource.getConnection()).thenThrow(new SQLException("pool exhausted"));
+
+        // act
+        assertThrows(SQLException.class, () -> limiter.getConnection(dataSource));
+
+        // assert
+        assertEquals(2, limiter.getAvailablePermits());
+    }
+}
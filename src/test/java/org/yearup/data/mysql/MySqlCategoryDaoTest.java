@@ -0,0 +1,68 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.yearup.data.events.CategoriesChangedEvent;
+import org.yearup.models.Category;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Verifies the JDBC calls of the category writes against a mocked connection.
+class MySqlCategoryDaoTest
+{
+    private Connection connection;
+    private PreparedStatement statement;
+    private ApplicationEventPublisher events;
+    private MySqlCategoryDao dao;
+
+    @BeforeEach
+    public void setup() throws SQLException
+    {
+        DataSource dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        events = mock(ApplicationEventPublisher.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        dao = new MySqlCategoryDao(dataSource, events);
+    }
+
+    @Test
+    public void create_shouldReturnTheInsertedRow_inOneRoundTrip() throws SQLException
+    {
+        // arrange: the database fills in the identity
+        ResultSet row = mock(ResultSet.class);
+        when(row.next()).thenReturn(true);
+        when(row.getInt("category_id")).thenReturn(7);
+        when(row.getString("name")).thenReturn("Garden");
+        when(row.getString("description")).thenReturn("Plants and tools");
+        when(statement.executeQuery()).thenReturn(row);
+
+        Category category = new Category();
+        category.setName("Garden");
+        category.setDescription("Plants and tools");
+
+        // act
+        Category created = dao.create(category);
+
+        // assert: no follow-up getById
+        assertEquals(7, created.getCategoryId());
+        assertEquals("Garden", created.getName());
+        assertEquals("Plants and tools", created.getDescription());
+        verify(connection, times(1)).prepareStatement("INSERT INTO categories (name, description) OUTPUT INSERTED.* VALUES (?, ?);");
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(statement).setString(1, "Garden");
+        verify(statement).setString(2, "Plants and tools");
+        verify(events).publishEvent(argThat((CategoriesChangedEvent event) -> event.getCategoryId() == 7));
+    }
+}
@@ -0,0 +1,73 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.models.Order;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Verifies that a page of orders and all of its line items are loaded with a single query.
+class MySqlOrderDaoTest
+{
+    // order 5 has two line items, order 4 has none and comes back once with a null line item
+    private static final int[] ORDER_IDS = {5, 5, 4};
+    private static final Integer[] LINE_ITEM_IDS = {11, 12, null};
+
+    private Connection connection;
+    private MySqlOrderDao dao;
+
+    @BeforeEach
+    public void setup() throws SQLException
+    {
+        DataSource dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet rows = orderRows();
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(rows);
+
+        dao = new MySqlOrderDao(dataSource);
+    }
+
+    @Test
+    public void listByUserId_shouldGroupJoinedRows_intoOrders() throws SQLException
+    {
+        // act
+        List<Order> orders = dao.listByUserId(1, null, 20);
+
+        // assert
+        assertEquals(2, orders.size());
+        assertEquals(5, orders.get(0).getOrderId(), "Because the newest order comes first.");
+        assertEquals(2, orders.get(0).getLineItems().size());
+        assertEquals(0, orders.get(1).getLineItems().size(), "Because an order without line items has an empty list.");
+        verify(connection, times(1)).prepareStatement(anyString());
+    }
+
+    private static ResultSet orderRows() throws SQLException
+    {
+        ResultSet row = mock(ResultSet.class);
+        AtomicInteger current = new AtomicInteger(-1);
+        when(row.next()).thenAnswer(invocation -> current.incrementAndGet() < ORDER_IDS.length);
+        when(row.getInt("order_id")).thenAnswer(invocation -> ORDER_IDS[current.get()]);
+        when(row.getInt("user_id")).thenReturn(1);
+        when(row.getDate("date")).thenReturn(Date.valueOf("2024-05-01"));
+        when(row.getBigDecimal("shipping_amount")).thenReturn(new BigDecimal("5.99"));
+        when(row.getInt("order_line_item_id")).thenAnswer(invocation -> {
+            Integer id = LINE_ITEM_IDS[current.get()];
+            return id == null ? 0 : id;
+        });
+        when(row.wasNull()).thenAnswer(invocation -> LINE_ITEM_IDS[current.get()] == null);
+        when(row.getInt("quantity")).thenReturn(1);
+        return row;
+    }
+}
@@ -0,0 +1,68 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Verifies that search hands the pool one stable SQL text per filter combination and binds the filters in clause order.
+class MySqlProductDaoSearchTest
+{
+    private Connection connection;
+    private PreparedStatement statement;
+    private MySqlProductDao dao;
+
+    @BeforeEach
+    public void setup() throws SQLException
+    {
+        DataSource dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenAnswer(invocation -> mock(ResultSet.class));
+
+        dao = new MySqlProductDao(dataSource);
+    }
+
+    @Test
+    public void search_shouldReuseTheSameSqlText_forTheSameFilters() throws SQLException
+    {
+        // act
+        dao.search(1, null, new BigDecimal("50"), "red");
+        dao.search(2, null, new BigDecimal("75"), "blue");
+
+        // assert
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(connection, times(2)).prepareStatement(sql.capture());
+        assertSame(sql.getAllValues().get(0), sql.getAllValues().get(1), "Because both searches use category, max price and colour.");
+        assertEquals("SELECT * FROM products WHERE 1=1 AND category_id = ? AND price <= ? AND color LIKE ?", sql.getValue());
+    }
+
+    @Test
+    public void searchPage_shouldBindFilters_thenSeekId_thenPageSize() throws SQLException
+    {
+        // act
+        dao.search(null, new BigDecimal("10"), null, null, 40, 25);
+
+        // assert
+        verify(connection).prepareStatement("SELECT * FROM products WHERE 1=1 AND price >= ? AND product_id > ?" +
+                " ORDER BY product_id OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY");
+        InOrder binding = inOrder(statement);
+        binding.verify(statement).setBigDecimal(1, new BigDecimal("10"));
+        binding.verify(statement).setInt(2, 40);
+        binding.verify(statement).setInt(3, 25);
+    }
+}
@@ -0,0 +1,94 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.yearup.data.events.ProductsChangedEvent;
+import org.yearup.models.Product;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Verifies the JDBC calls of the product writes against a mocked connection.
+class MySqlProductDaoWriteTest
+{
+    private Connection connection;
+    private PreparedStatement statement;
+    private ApplicationEventPublisher events;
+    private MySqlProductDao dao;
+
+    @BeforeEach
+    public void setup() throws SQLException
+    {
+        DataSource dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        events = mock(ApplicationEventPublisher.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        dao = new MySqlProductDao(dataSource, events);
+    }
+
+    @Test
+    public void create_shouldReturnTheInsertedRow_inOneRoundTrip() throws SQLException
+    {
+        // arrange: the database fills in the identity
+        ResultSet row = mock(ResultSet.class);
+        when(row.next()).thenReturn(true);
+        when(row.getInt("product_id")).thenReturn(41);
+        when(row.getString("name")).thenReturn("Smartphone");
+        when(row.getBigDecimal("price")).thenReturn(new BigDecimal("499.99"));
+        when(row.getInt("category_id")).thenReturn(1);
+        when(row.getInt("stock")).thenReturn(50);
+        when(statement.executeQuery()).thenReturn(row);
+
+        // act
+        Product created = dao.create(new Product(0, "Smartphone", new BigDecimal("499.99"), 1, "Phone", "Black", 50, true, "phone.jpg"));
+
+        // assert: no follow-up getById
+        assertEquals(41, created.getProductId());
+        assertEquals("Smartphone", created.getName());
+        assertEquals(50, created.getStock());
+        verify(connection, times(1)).prepareStatement(argThat(sql -> sql.contains("OUTPUT INSERTED.*")));
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(statement, never()).executeUpdate();
+        verify(events).publishEvent(argThat((ProductsChangedEvent event) -> event.getProductIds().equals(List.of(41))));
+    }
+
+    @Test
+    public void createAll_shouldPublishTheInsertedIds_afterClosingTheConnection() throws SQLException
+    {
+        // arrange: the highest id before the import is 40, the import added 41 and 42
+        ResultSet maxId = mock(ResultSet.class);
+        when(maxId.next()).thenReturn(true);
+        when(maxId.getInt(1)).thenReturn(40);
+        ResultSet inserted = mock(ResultSet.class);
+        when(inserted.next()).thenReturn(true, true, false);
+        when(inserted.getInt("product_id")).thenReturn(41, 42);
+        when(statement.executeQuery()).thenReturn(maxId, inserted);
+
+        Product product = new Product(0, "Smartphone", new BigDecimal("499.99"), 1, "Phone", "Black", 50, true, "phone.jpg");
+
+        // act
+        int count = dao.createAll(List.of(product, product).iterator(), 1000);
+
+        // assert: listeners re-read the rows on connections of their own
+        assertEquals(2, count);
+        InOrder order = inOrder(connection, events);
+        order.verify(connection).commit();
+        order.verify(connection).close();
+        order.verify(events).publishEvent(argThat((ProductsChangedEvent event) -> event.getProductIds().equals(List.of(41, 42))));
+    }
+}
@@ -0,0 +1,187 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.models.CartDelta;
+import org.yearup.models.Order;
+import org.yearup.models.OrderLineItem;
+import org.yearup.models.ShoppingCart;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+// Verifies that loading a cart does not run one product query per cart line (the N+1 problem),
+// and that a cart change is answered from its own statement batch without reading the cart back.
+// The DataSource is mocked so every statement the DAOs prepare can be counted without a real database.
+class MySqlShoppingCartDaoTest
+{
+    private static final int CART_SIZE = 40;
+
+    private DataSource dataSource;
+    private Connection connection;
+    private MySqlShoppingCartDao dao;
+
+    @BeforeEach
+    public void setup() throws SQLException
+    {
+        dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        // every prepared statement returns the rows that belong to its query
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            PreparedStatement statement = mock(PreparedStatement.class);
+            ResultSet resultSet = sql.contains("FROM shopping_cart") ? cartRows() : productRows();
+            when(statement.executeQuery()).thenReturn(resultSet);
+            return statement;
+        });
+
+        dao = new MySqlShoppingCartDao(dataSource, new MySqlProductDao(dataSource));
+    }
+
+    @Test
+    public void getByUserId_shouldLoadWholeCart_inTwoQueries() throws SQLException
+    {
+        // act
+        ShoppingCart cart = dao.getByUserId(1);
+
+        // assert
+        assertEquals(CART_SIZE, cart.getItems().size(), "Because every cart row should become a cart item.");
+        verify(connection, times(2)).prepareStatement(anyString());
+        verify(dataSource, times(2)).getConnection();
+    }
+
+    @Test
+    public void incrementProduct_shouldReturnTheDelta_fromOneBatch() throws SQLException
+    {
+        // arrange: the batch returns the OUTPUT row of the MERGE, then the cart total
+        ResultSet output = mock(ResultSet.class);
+        when(output.next()).thenReturn(true);
+        when(output.getInt(1)).thenReturn(2);
+        when(output.getBigDecimal(2)).thenReturn(new BigDecimal("9.99"));
+
+        ResultSet total = mock(ResultSet.class);
+        when(total.next()).thenReturn(true);
+        when(total.getBigDecimal("total")).thenReturn(new BigDecimal("24.97"));
+
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.execute()).thenReturn(true);
+        when(statement.getMoreResults()).thenReturn(true);
+        when(statement.getResultSet()).thenReturn(output, total);
+        when(connection.prepareStatement(contains("MERGE"))).thenReturn(statement);
+
+        // act
+        CartDelta delta = dao.incrementProduct(1, 15);
+
+        // assert
+        assertEquals(15, delta.getProductId());
+        assertEquals(2, delta.getQuantity());
+        assertEquals(new BigDecimal("19.98"), delta.getLineTotal());
+        assertEquals(new BigDecimal("24.97"), delta.getTotal());
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(statement, never()).executeQuery();
+    }
+
+    @Test
+    public void incrementProduct_shouldLeaveUpdateCountsOn_forTheNextUserOfTheConnection() throws SQLException
+    {
+        // arrange: one pooled connection, shared by a cart change and then a checkout;
+        // like SQL Server it keeps SET NOCOUNT for the session and then reports no update counts
+        AtomicBoolean noCount = new AtomicBoolean();
+        Connection pooled = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(pooled);
+        when(pooled.prepareStatement(anyString())).thenAnswer(invocation -> sessionStatement(invocation.getArgument(0), noCount));
+        when(pooled.prepareStatement(anyString(), anyInt())).thenAnswer(invocation -> sessionStatement(invocation.getArgument(0), noCount));
+
+        OrderLineItem line = new OrderLineItem();
+        line.setProductId(15);
+        line.setQuantity(5);
+        Order order = new Order();
+        order.setUserId(1);
+
+        // act
+        dao.incrementProduct(1, 15);
+
+        // assert: product 15 has too little stock, so the checkout on the same connection must see 0 rows updated
+        assertThrows(InsufficientStockException.class, () -> new MySqlOrderDao(dataSource).createFromCart(order, List.of(line)));
+    }
+
+    // a statement on the pooled connection: SET NOCOUNT in its text changes the session when it runs,
+    // the stock decrement updates no row, and the cart batch returns its OUTPUT row and its total
+    private static PreparedStatement sessionStatement(String sql, AtomicBoolean noCount) throws SQLException
+    {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        Runnable run = () -> {
+            int on = sql.lastIndexOf("SET NOCOUNT ON");
+            int off = sql.lastIndexOf("SET NOCOUNT OFF");
+            if (on >= 0 || off >= 0) {
+                noCount.set(on > off);
+            }
+        };
+
+        ResultSet output = mock(ResultSet.class);
+        when(output.next()).thenReturn(true);
+        when(output.getInt(1)).thenReturn(1);
+        when(output.getBigDecimal(2)).thenReturn(new BigDecimal("9.99"));
+        ResultSet total = mock(ResultSet.class);
+        when(total.next()).thenReturn(true);
+        when(total.getBigDecimal("total")).thenReturn(new BigDecimal("9.99"));
+
+        when(statement.execute()).thenAnswer(invocation -> {
+            run.run();
+            return true;
+        });
+        when(statement.getMoreResults()).thenReturn(true);
+        when(statement.getResultSet()).thenReturn(output, total);
+        when(statement.executeUpdate()).thenAnswer(invocation -> {
+            run.run();
+            return noCount.get() ? 0 : 1;
+        });
+        when(statement.executeBatch()).thenAnswer(invocation -> {
+            run.run();
+            return new int[]{noCount.get() ? Statement.SUCCESS_NO_INFO : 0};
+        });
+        when(statement.getGeneratedKeys()).thenReturn(mock(ResultSet.class));
+        return statement;
+    }
+
+    // rows from shopping_cart: product 1..40 with quantity 2
+    private static ResultSet cartRows() throws SQLException
+    {
+        ResultSet row = mock(ResultSet.class);
+        AtomicInteger current = new AtomicInteger();
+        when(row.next()).thenAnswer(invocation -> current.incrementAndGet() <= CART_SIZE);
+        when(row.getInt("product_id")).thenAnswer(invocation -> current.get());
+        when(row.getInt("quantity")).thenReturn(2);
+        return row;
+    }
+
+    // rows from products: one product for every id in the cart
+    private static ResultSet productRows() throws SQLException
+    {
+        ResultSet row = mock(ResultSet.class);
+        AtomicInteger current = new AtomicInteger();
+        when(row.next()).thenAnswer(invocation -> current.incrementAndGet() <= CART_SIZE);
+        when(row.getInt("product_id")).thenAnswer(invocation -> current.get());
+        when(row.getString("name")).thenAnswer(invocation -> "Product " + current.get());
+        when(row.getBigDecimal("price")).thenReturn(new BigDecimal("9.99"));
+        return row;
+    }
+}
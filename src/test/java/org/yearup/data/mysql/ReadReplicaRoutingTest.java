@@ -0,0 +1,149 @@
+package org.yearup.data.mysql;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.models.Order;
+import org.yearup.models.OrderLineItem;
+import org.yearup.models.Product;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Two embedded databases stand in for the primary and a replica that hasn't caught up yet,
+// so every assertion can tell from the data which one a read went to.
+class ReadReplicaRoutingTest
+{
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private DataSource primary;
+    private DataSource replica;
+    private ReadReplicaRouting routing;
+    private MySqlProductDao productDao;
+    private MySqlShoppingCartDao cartDao;
+    private MySqlOrderDao orderDao;
+
+    @BeforeEach
+    public void setup() throws SQLException
+    {
+        primary = database("Primary shirt", 2);
+        replica = database("Replica shirt", 0);
+        routing = new ReadReplicaRouting(replica, 5000, now::get);
+
+        productDao = new MySqlProductDao(primary);
+        productDao.setReadReplica(routing);
+        cartDao = new MySqlShoppingCartDao(primary, productDao);
+        cartDao.setReadReplica(routing);
+        orderDao = new MySqlOrderDao(primary);
+        orderDao.setReadReplica(routing);
+    }
+
+    @Test
+    public void reads_shouldGoToTheReplica_andWritesToThePrimary()
+    {
+        // act
+        Product product = productDao.getById(1);
+        int cartLines = cartDao.getByUserId(1).getItems().size();
+        productDao.update(1, new Product(1, "Updated shirt", new BigDecimal("9.99"), 1, "", "Red", 10, false, ""));
+
+        // assert
+        assertEquals("Replica shirt", product.getName());
+        assertEquals(0, cartLines, "Because the replica doesn't have the cart line yet.");
+        assertEquals("Updated shirt", new MySqlProductDao(primary).getById(1).getName());
+    }
+
+    @Test
+    public void reads_shouldStayOnThePrimary_duringTheReadYourWritesWindow() throws SQLException
+    {
+        // arrange: the replica still has the line the primary is about to delete
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement())
+        {
+            statement.execute("INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (1, 1, 5)");
+        }
+
+        // act
+        cartDao.clearCart(1);
+        int linesAfterWrite = cartDao.getByUserId(1).getItems().size();
+        int otherUserLines = cartDao.getByUserId(2).getItems().size();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        int linesAfterWindow = cartDao.getByUserId(1).getItems().size();
+
+        // assert
+        assertEquals(0, linesAfterWrite, "Because user 1 just cleared their cart.");
+        assertEquals(0, otherUserLines, "Because only the writing user is pinned to the primary.");
+        assertEquals(1, linesAfterWindow, "Because the window has passed and the replica hasn't caught up.");
+        assertEquals(1, routing.getPrimaryReads());
+    }
+
+    @Test
+    public void catalogReads_shouldStayOnThePrimary_afterACatalogWrite()
+    {
+        // act
+        productDao.update(1, new Product(1, "Updated shirt", new BigDecimal("9.99"), 1, "", "Red", 10, false, ""));
+
+        // assert
+        assertEquals("Updated shirt", productDao.getById(1).getName());
+    }
+
+    @Test
+    public void checkout_shouldOnlyKeepItsOwnProductsOnThePrimary()
+    {
+        // arrange
+        OrderLineItem line = new OrderLineItem();
+        line.setProductId(1);
+        line.setSalesPrice(new BigDecimal("19.99"));
+        line.setQuantity(1);
+        line.setDiscount(BigDecimal.ZERO);
+        Order order = new Order();
+        order.setUserId(1);
+        order.setShippingAmount(new BigDecimal("5.99"));
+
+        // act
+        orderDao.createFromCart(order, List.of(line));
+        Product ordered = productDao.getById(1);
+        List<Product> browsed = productDao.listByCategoryId(1);
+
+        // assert
+        assertEquals(9, ordered.getStock(), "Because the product's stock just changed on the primary.");
+        assertEquals("Replica shirt", browsed.get(0).getName(), "Because a checkout must not take catalog browsing off the replica.");
+    }
+
+    private static DataSource database(String productName, int cartQuantity) throws SQLException
+    {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MSSQLServer;DB_CLOSE_DELAY=-1");
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement())
+        {
+            statement.execute("CREATE TABLE products (product_id INT IDENTITY(1,1) PRIMARY KEY, name NVARCHAR(100), " +
+                    "price DECIMAL(10, 2), category_id INT, description NVARCHAR(MAX), color NVARCHAR(20), " +
+                    "image_url NVARCHAR(200), stock INT, featured BIT)");
+            statement.execute("CREATE TABLE shopping_cart (user_id INT, product_id INT, quantity INT, PRIMARY KEY (user_id, product_id))");
+            statement.execute("CREATE TABLE orders (order_id INT IDENTITY(1,1) PRIMARY KEY, user_id INT, date DATE, address NVARCHAR(100), " +
+                    "city NVARCHAR(50), state NVARCHAR(20), zip NVARCHAR(20), shipping_amount DECIMAL(10, 2))");
+            statement.execute("CREATE TABLE order_line_items (order_line_item_id INT IDENTITY(1,1) PRIMARY KEY, order_id INT, " +
+                    "product_id INT, sales_price DECIMAL(10, 2), quantity INT, discount DECIMAL(10, 2))");
+            statement.execute("CREATE TABLE order_outbox (outbox_id INT IDENTITY(1,1) PRIMARY KEY, order_id INT, user_id INT, " +
+                    "stage_index INT, status NVARCHAR(20), attempts INT, next_attempt_at DATETIME2, last_error NVARCHAR(2000), " +
+                    "locked_until DATETIME2)");
+            statement.execute("INSERT INTO products (name, price, category_id, description, color, image_url, stock, featured) " +
+                    "VALUES ('" + productName + "', 19.99, 1, '', 'Red', '', 10, 0)");
+            if (cartQuantity > 0)
+            {
+                statement.execute("INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (1, 1, " + cartQuantity + ")");
+            }
+        }
+        return dataSource;
+    }
+}
@@ -0,0 +1,51 @@
+package org.yearup.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.yearup.data.ProductDao;
+import org.yearup.data.mysql.MySqlProductDao;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DaoMetricsAspectTest
+{
+    private SimpleMeterRegistry registry;
+    private ProductDao dao;
+
+    @BeforeEach
+    public void setup() throws SQLException
+    {
+        // a DataSource that can't hand out connections, like a database that is down
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenThrow(new SQLTransientConnectionException("connection refused", "08S01"));
+
+        registry = new SimpleMeterRegistry();
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new MySqlProductDao(dataSource));
+        factory.addAspect(new DaoMetricsAspect(registry));
+        dao = factory.getProxy();
+    }
+
+    @Test
+    public void failedCall_shouldBeTimedAndCountedBySqlState()
+    {
+        // act
+        assertThrows(RuntimeException.class, () -> dao.getById(1));
+
+        // assert
+        assertEquals(1, registry.get("easyshop.dao")
+                .tags("dao", "MySqlProductDao", "method", "getById", "outcome", "error")
+                .timer().count());
+        assertEquals(1, registry.get("easyshop.dao.errors")
+                .tags("method", "getById", "sqlstate", "08S01")
+                .counter().count());
+    }
+}
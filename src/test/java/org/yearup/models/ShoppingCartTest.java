@@ -0,0 +1,65 @@
+package org.yearup.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShoppingCartTest
+{
+    private static Product product(int productId, String price)
+    {
+        return new Product(productId, "Product " + productId, new BigDecimal(price), 1, "", "Black", 10, false, "");
+    }
+
+    @Test
+    public void getTotal_shouldFollowAdds_replacements_andQuantityChanges()
+    {
+        // arrange
+        ShoppingCart cart = new ShoppingCart();
+        cart.add(new ShoppingCartItem(product(1, "19.99"), 2));
+        cart.add(new ShoppingCartItem(product(2, "5.00"), 1));
+
+        // act
+        BigDecimal initial = cart.getTotal();
+        cart.add(new ShoppingCartItem(product(2, "5.00"), 3));
+        BigDecimal replaced = cart.getTotal();
+        cart.get(1).setQuantity(1);
+        BigDecimal changed = cart.getTotal();
+
+        // assert
+        assertEquals(new BigDecimal("44.98"), initial);
+        assertEquals(new BigDecimal("54.98"), replaced, "Because adding the same product again replaces its line.");
+        assertEquals(new BigDecimal("34.99"), changed, "Because a quantity change on an item in the cart updates the total.");
+        assertEquals(new BigDecimal("15.00"), cart.get(2).getLineTotal());
+    }
+
+    @Test
+    public void getTotal_shouldFallBackToBigDecimal_forSubCentPrices()
+    {
+        // arrange
+        ShoppingCart cart = new ShoppingCart();
+        cart.add(new ShoppingCartItem(product(1, "0.125"), 3));
+        cart.add(new ShoppingCartItem(product(2, "1.10"), 1));
+
+        // act
+        BigDecimal total = cart.getTotal();
+
+        // assert
+        assertEquals(0, new BigDecimal("1.475").compareTo(total));
+        assertEquals(new BigDecimal("0.375"), cart.get(1).getLineTotal());
+    }
+
+    @Test
+    public void getItems_shouldBeReadOnly()
+    {
+        // arrange
+        ShoppingCart cart = new ShoppingCart();
+
+        // act & assert
+        assertThrows(UnsupportedOperationException.class,
+                () -> cart.getItems().put(1, new ShoppingCartItem(product(1, "1.00"), 1)));
+    }
+}
@@ -0,0 +1,125 @@
+package org.yearup.orders;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.OrderOutboxDao;
+import org.yearup.models.OutboxEntry;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderPipelineTest
+{
+    private OrderOutboxDao outboxDao;
+    private OrderStage address;
+    private OrderStage confirmation;
+    private SimpleMeterRegistry registry;
+    private OrderPipeline pipeline;
+
+    @BeforeEach
+    public void setup()
+    {
+        outboxDao = mock(OrderOutboxDao.class);
+        address = mock(OrderStage.class);
+        confirmation = mock(OrderStage.class);
+        when(address.getName()).thenReturn("address");
+        when(confirmation.getName()).thenReturn("confirmation");
+
+        registry = new SimpleMeterRegistry();
+        pipeline = new OrderPipeline(outboxDao, List.of(address, confirmation), registry, 1, 10, 3, 60_000, 300_000);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException
+    {
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void process_shouldRunAllStages_andMarkEntryDone()
+    {
+        // arrange
+        OutboxEntry entry = new OutboxEntry(7, 100, 1, 0, 0);
+        when(outboxDao.claim(eq(100), any(Instant.class), any(Instant.class))).thenReturn(entry);
+
+        // act
+        pipeline.process(100);
+
+        // assert
+        verify(address).process(entry);
+        verify(confirmation).process(entry);
+        verify(outboxDao).markStageCompleted(7, 1);
+        verify(outboxDao).markDone(7);
+        assertEquals(1, registry.get("easyshop.orders.stage").tag("stage", "confirmation").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    public void process_shouldResumeAtRecordedStage()
+    {
+        // arrange: the address was already resolved in an earlier run
+        OutboxEntry entry = new OutboxEntry(7, 100, 1, 1, 0);
+        when(outboxDao.claim(eq(100), any(Instant.class), any(Instant.class))).thenReturn(entry);
+
+        // act
+        pipeline.process(100);
+
+        // assert
+        verify(address, never()).process(any());
+        verify(confirmation).process(entry);
+        verify(outboxDao).markDone(7);
+    }
+
+    @Test
+    public void failingStage_shouldBeRetried_andStopTheRemainingStages()
+    {
+        // arrange
+        OutboxEntry entry = new OutboxEntry(7, 100, 1, 0, 0);
+        when(outboxDao.claim(eq(100), any(Instant.class), any(Instant.class))).thenReturn(entry);
+        doThrow(new IllegalStateException("profile service down")).when(address).process(entry);
+
+        // act
+        pipeline.process(100);
+
+        // assert
+        verify(outboxDao).markRetry(eq(7), eq(1), any(Instant.class), contains("profile service down"));
+        verify(confirmation, never()).process(any());
+        verify(outboxDao, never()).markDone(anyInt());
+    }
+
+    @Test
+    public void process_shouldSkipAnOrder_claimedByAnotherInstance()
+    {
+        // arrange: the claim finds no row, another instance holds it
+        when(outboxDao.claim(eq(100), any(Instant.class), any(Instant.class))).thenReturn(null);
+
+        // act
+        pipeline.process(100);
+
+        // assert
+        verify(address, never()).process(any());
+        verify(confirmation, never()).process(any());
+        verify(outboxDao, never()).markDone(anyInt());
+    }
+
+    @Test
+    public void lastAttempt_shouldMarkEntryFailed()
+    {
+        // arrange: two attempts were made already and max-attempts is 3
+        OutboxEntry entry = new OutboxEntry(7, 100, 1, 0, 2);
+        when(outboxDao.claim(eq(100), any(Instant.class), any(Instant.class))).thenReturn(entry);
+        doThrow(new IllegalStateException("no profile")).when(address).process(entry);
+
+        // act
+        pipeline.process(100);
+
+        // assert
+        verify(outboxDao).markFailed(eq(7), eq(3), anyString());
+        verify(outboxDao, never()).markRetry(anyInt(), anyInt(), any(), any());
+    }
+}
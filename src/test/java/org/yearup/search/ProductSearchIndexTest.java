@@ -0,0 +1,166 @@
+package org.yearup.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.events.ProductsChangedEvent;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+import org.yearup.models.ProductSearchResult;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest
+{
+    private MySqlProductDao productDao;
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup()
+    {
+        productDao = mock(MySqlProductDao.class);
+        index = new ProductSearchIndex(productDao);
+
+        // the catalog the startup build reads
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(4);
+            consumer.accept(new Product(1, "Red Shirt", new BigDecimal("19.99"), 1, "A cotton shirt", "Red", 10, false, "url1"));
+            consumer.accept(new Product(2, "Blue Shirt", new BigDecimal("49.99"), 1, "A red striped shirt", "Blue", 10, false, "url2"));
+            consumer.accept(new Product(3, "Red Sneakers", new BigDecimal("89.99"), 2, "Running shoes", "Red", 10, false, "url3"));
+            return null;
+        }).when(productDao).streamSearch(isNull(), isNull(), isNull(), isNull(), any(Consumer.class));
+        index.build();
+    }
+
+    @Test
+    public void search_shouldRankNameMatches_aboveDescriptionMatches()
+    {
+        // act
+        ProductSearchResult result = index.search("red shirt", null, null, null, null, 10);
+
+        // assert
+        assertEquals(2, result.getTotal(), "Because only two products contain both words.");
+        assertEquals(1, result.getProducts().get(0).getProductId(), "Because 'red' is in the name and colour of product 1.");
+        assertEquals(2, result.getProducts().get(1).getProductId());
+    }
+
+    @Test
+    public void search_shouldCountFacets_overAllMatches()
+    {
+        // act
+        ProductSearchResult result = index.search("red", null, null, null, null, 1);
+
+        // assert
+        assertEquals(1, result.getProducts().size(), "Because the limit is 1.");
+        assertEquals(3, result.getTotal());
+        assertEquals(2, result.getCategories().get(1));
+        assertEquals(1, result.getCategories().get(2));
+        assertEquals(2, result.getColors().get("Red"));
+        assertEquals(1, result.getPrices().get("0-25"));
+        assertEquals(1, result.getPrices().get("25-50"));
+        assertEquals(1, result.getPrices().get("50-100"));
+    }
+
+    @Test
+    public void search_shouldApplyFilters()
+    {
+        // act
+        ProductSearchResult result = index.search("red", 2, null, null, new BigDecimal("100"), 10);
+
+        // assert
+        assertEquals(1, result.getTotal());
+        assertEquals(3, result.getProducts().get(0).getProductId());
+    }
+
+    @Test
+    public void onProductsChanged_shouldReindexUpdatedRows_andDropDeletedRows()
+    {
+        // arrange: product 1 was renamed and product 3 no longer exists
+        when(productDao.getByIds(any())).thenReturn(List.of(
+                new Product(1, "Green Shirt", new BigDecimal("19.99"), 1, "A cotton shirt", "Green", 10, false, "url1")));
+
+        // act
+        index.onProductsChanged(new ProductsChangedEvent(List.of(1, 3)));
+        index.refresh();
+
+        // assert
+        assertEquals(0, index.search("sneakers", null, null, null, null, 10).getTotal());
+        assertEquals(1, index.search("green", null, null, null, null, 10).getTotal());
+        assertEquals(1, index.search("red", null, null, null, null, 10).getTotal(), "Because only product 2 still mentions red.");
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void onProductsChanged_shouldOnlyQueueTheIds_forTheNextRefresh()
+    {
+        // act
+        index.onProductsChanged(ProductsChangedEvent.stockChanged(List.of(1, 2)));
+        index.onProductsChanged(ProductsChangedEvent.of(2));
+
+        // assert: the publisher doesn't pay for the re-read, and the refresh reads each id once
+        verify(productDao, never()).getByIds(any());
+        assertEquals(2, index.getPendingCount());
+
+        index.refresh();
+        verify(productDao).getByIds(List.of(1, 2));
+        assertEquals(0, index.getPendingCount());
+    }
+
+    @Test
+    public void build_shouldApplyChanges_madeWhileItWasReading()
+    {
+        // arrange: product 1 is renamed after the build has read its old row
+        Product oldRow = new Product(1, "Red Shirt", new BigDecimal("19.99"), 1, "A cotton shirt", "Red", 10, false, "url1");
+        Product newRow = new Product(1, "Green Shirt", new BigDecimal("19.99"), 1, "A cotton shirt", "Green", 10, false, "url1");
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(4);
+            consumer.accept(oldRow);
+            index.onProductsChanged(ProductsChangedEvent.of(1));
+            return null;
+        }).when(productDao).streamSearch(isNull(), isNull(), isNull(), isNull(), any());
+        when(productDao.getByIds(List.of(1))).thenReturn(List.of(newRow));
+
+        // act
+        index.build();
+
+        // assert
+        assertEquals(1, index.size());
+        assertEquals(1, index.search("green", null, null, null, null, 10).getTotal());
+        assertEquals(0, index.search("red", null, null, null, null, 10).getTotal());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void refresh_shouldRetryAFailedBuild_untilItSucceeds()
+    {
+        // arrange: the first read of the catalog times out
+        index = new ProductSearchIndex(productDao);
+        clearInvocations(productDao);
+        doThrow(new RuntimeException("Login timeout"))
+                .doAnswer(invocation -> {
+                    Consumer<Product> consumer = invocation.getArgument(4);
+                    consumer.accept(new Product(1, "Red Shirt", new BigDecimal("19.99"), 1, "A cotton shirt", "Red", 10, false, "url1"));
+                    return null;
+                })
+                .when(productDao).streamSearch(isNull(), isNull(), isNull(), isNull(), any(Consumer.class));
+        index.build();
+        assertFalse(index.isBuilt());
+
+        // act
+        index.refresh();
+
+        // assert
+        assertTrue(index.isBuilt());
+        assertEquals(1, index.search("shirt", null, null, null, null, 10).getTotal());
+
+        index.refresh();
+        verify(productDao, times(2)).streamSearch(isNull(), isNull(), isNull(), isNull(), any(Consumer.class));
+    }
+}
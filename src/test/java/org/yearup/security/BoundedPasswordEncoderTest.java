@@ -0,0 +1,82 @@
+package org.yearup.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest
+{
+    private SimpleMeterRegistry registry;
+    private BoundedPasswordEncoder encoder;
+
+    @BeforeEach
+    public void setup()
+    {
+        registry = new SimpleMeterRegistry();
+        // the lowest BCrypt cost keeps the test fast; one thread and a one-slot queue make it easy to fill
+        encoder = new BoundedPasswordEncoder(4, 1, 1, 5000);
+        encoder.bindTo(registry);
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        encoder.shutdown();
+    }
+
+    @Test
+    public void encode_shouldProduceHashes_thatMatch()
+    {
+        // act
+        String hash = encoder.encode("secret");
+
+        // assert
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("wrong", hash));
+        assertEquals(3, registry.get("easyshop.security.hashing").timers().stream().mapToLong(t -> t.count()).sum());
+    }
+
+    @Test
+    public void upgradeEncoding_shouldFlagHashes_madeWithAnotherCost()
+    {
+        // arrange
+        String current = encoder.encode("secret");
+        String older = new BCryptPasswordEncoder(5).encode("secret");
+
+        // act & assert
+        assertFalse(encoder.upgradeEncoding(current));
+        assertTrue(encoder.upgradeEncoding(older), "Because the configured cost changed since this hash was made.");
+        assertFalse(encoder.upgradeEncoding("not a bcrypt hash"));
+    }
+
+    @Test
+    public void encode_shouldRefuseWork_whenTheQueueIsFull() throws InterruptedException
+    {
+        // arrange: park the only hashing thread and fill the only queue slot
+        CountDownLatch release = new CountDownLatch(1);
+        encoder.getExecutor().execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        encoder.getExecutor().execute(() -> { });
+
+        // act & assert
+        try {
+            assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("secret"));
+            assertEquals(1.0, registry.get("easyshop.security.hashing.rejected").functionCounter().count());
+            assertEquals(1.0, registry.get("easyshop.security.hashing.queue").gauge().value());
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.yearup.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginRateLimiterTest
+{
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    public void setup()
+    {
+        // 2 attempts per user, refilled at 6 per minute (one every 10 seconds); 3 per IP at 60 per minute
+        limiter = new LoginRateLimiter(2, 6, 3, 60, now::get);
+    }
+
+    @Test
+    public void tryAcquire_shouldAllowTheBurst_thenThrottleTheUser()
+    {
+        // act & assert
+        assertTrue(limiter.tryAcquire("Alice", "10.0.0.1"));
+        assertTrue(limiter.tryAcquire("alice", "10.0.0.2"));
+        assertFalse(limiter.tryAcquire("ALICE", "10.0.0.3"), "Because usernames are limited regardless of case or IP.");
+        assertTrue(limiter.tryAcquire("bob", "10.0.0.3"));
+    }
+
+    @Test
+    public void tryAcquire_shouldThrottleAnIp_acrossUsernames()
+    {
+        // act & assert
+        assertTrue(limiter.tryAcquire("a", "10.0.0.1"));
+        assertTrue(limiter.tryAcquire("b", "10.0.0.1"));
+        assertTrue(limiter.tryAcquire("c", "10.0.0.1"));
+        assertFalse(limiter.tryAcquire("d", "10.0.0.1"));
+    }
+
+    @Test
+    public void tryAcquire_shouldRefillOverTime()
+    {
+        // arrange
+        limiter.tryAcquire("alice", "10.0.0.1");
+        limiter.tryAcquire("alice", "10.0.0.1");
+
+        // act
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        // assert
+        assertTrue(limiter.tryAcquire("alice", "10.0.0.1"), "Because one token was refilled after 10 seconds.");
+        assertFalse(limiter.tryAcquire("alice", "10.0.0.1"));
+    }
+
+    @Test
+    public void evictIdle_shouldDropFullBuckets_andThrottledRequestsAreCounted()
+    {
+        // arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        limiter.bindTo(registry);
+        limiter.tryAcquire("alice", "10.0.0.1");
+        limiter.tryAcquire("alice", "10.0.0.1");
+        limiter.tryAcquire("alice", "10.0.0.1");
+
+        // act
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        limiter.evictIdle();
+        int afterFiveSeconds = limiter.size();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(20));
+        limiter.evictIdle();
+
+        // assert
+        assertEquals(1, afterFiveSeconds, "Because the IP bucket is full again, the user bucket is not.");
+        assertEquals(0, limiter.size());
+        assertEquals(1.0, registry.get("easyshop.security.throttled").tag("limit", "user").functionCounter().count());
+    }
+}
@@ -0,0 +1,103 @@
+package org.yearup.security.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenProviderTest
+{
+    private final AtomicLong now = new AtomicLong(System.currentTimeMillis());
+    private byte[] secret;
+    private TokenProvider tokenProvider;
+
+    @BeforeEach
+    public void setup()
+    {
+        secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+
+        // tokens are valid for one hour
+        tokenProvider = new TokenProvider(Base64.getEncoder().encodeToString(secret), 3600, 100, now::get);
+        tokenProvider.afterPropertiesSet();
+    }
+
+    @Test
+    public void resolveAuthentication_shouldVerifyAToken_onlyOnce()
+    {
+        // arrange
+        String token = tokenProvider.createToken(login("gary"), false);
+
+        // act
+        Authentication first = tokenProvider.resolveAuthentication(token);
+        Authentication second = tokenProvider.resolveAuthentication(token);
+
+        // assert: a parsed token builds a new Authentication, the cached one is handed out as is
+        assertEquals("gary", first.getName());
+        assertEquals("ROLE_USER", first.getAuthorities().iterator().next().getAuthority());
+        assertSame(first, second);
+    }
+
+    @Test
+    public void resolveAuthentication_shouldReturnNull_forATamperedToken()
+    {
+        // arrange: a different signature on the same header and claims
+        String token = tokenProvider.createToken(login("gary"), false);
+        String signature = token.substring(token.lastIndexOf('.') + 1);
+        String forged = token.substring(0, token.lastIndexOf('.') + 1) + new StringBuilder(signature).reverse();
+
+        // act & assert
+        assertNull(tokenProvider.resolveAuthentication(forged));
+    }
+
+    @Test
+    public void resolveAuthentication_shouldReturnNull_forAnExpiredToken()
+    {
+        // arrange
+        String token = signed("gary", now.get() - 1000);
+
+        // act & assert
+        assertNull(tokenProvider.resolveAuthentication(token));
+    }
+
+    @Test
+    public void resolveAuthentication_shouldForgetAToken_atItsExpiry_notAfterTheTimeout()
+    {
+        // arrange: a token that expires after one minute, well before the configured hour
+        String token = signed("gary", now.get() + 60_000);
+        assertNotNull(tokenProvider.resolveAuthentication(token));
+
+        // act
+        now.addAndGet(61_000);
+
+        // assert
+        assertNull(tokenProvider.resolveAuthentication(token), "Because the cached entry ends with the token.");
+    }
+
+    private String signed(String username, long expiresAt)
+    {
+        return Jwts.builder()
+                .setSubject(username)
+                .claim("auth", "ROLE_USER")
+                .signWith(Keys.hmacShaKeyFor(secret), SignatureAlgorithm.HS512)
+                .setExpiration(new Date(expiresAt))
+                .compact();
+    }
+
+    private static Authentication login(String username)
+    {
+        return new UsernamePasswordAuthenticationToken(username, null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+}
@@ -1,4 +1,5 @@
 -- Eerst alle bestaande tabellen verwijderen (in de juiste volgorde vanwege foreign keys)
+DROP TABLE IF EXISTS order_outbox;
 DROP TABLE IF EXISTS shopping_cart;
 DROP TABLE IF EXISTS order_line_items;
 DROP TABLE IF EXISTS orders;
@@ -64,6 +65,23 @@ CREATE TABLE shopping_cart (
 );
 GO
 
+-- follow-up work of placed orders, written in the checkout transaction and drained by the OrderPipeline
+CREATE TABLE order_outbox (
+   outbox_id INT IDENTITY(1,1) NOT NULL,
+   order_id INT NOT NULL,
+   user_id INT NOT NULL,
+   stage_index INT NOT NULL DEFAULT 0,
+   status NVARCHAR(20) NOT NULL DEFAULT 'PENDING',
+   attempts INT NOT NULL DEFAULT 0,
+   next_attempt_at DATETIME2 NOT NULL,
+   last_error NVARCHAR(2000),
+   locked_until DATETIME2 NULL,
+   created_at DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME(),
+   PRIMARY KEY (outbox_id)
+);
+CREATE INDEX ix_order_outbox_due ON order_outbox (status, next_attempt_at);
+GO
+
 /*  INSERT Data  */
 INSERT INTO users (username, hashed_password, role)
 VALUES  ('user','$2a$10$NkufUPF3V8dEPSZeo1fzHe9ScBu.LOay9S3N32M84yuUM2OJYEJ/.','ROLE_USER'),